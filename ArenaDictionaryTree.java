@@ -0,0 +1,401 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public final class ArenaDictionaryTree implements Iterable<String> {
+	private final static int END = 0; // Node id 0 is the end sentinel with height and size 0
+
+	private final static int SLAB = 1 << 20;
+
+	private final ArrayList<ByteBuffer> slabs = new ArrayList<ByteBuffer>();
+
+	private ByteBuffer slab = null;
+
+	private long[] records = new long[16]; // Slab index in the upper, offset in the lower 32 bits
+
+	private int[] lefts = new int[16];
+
+	private int[] rights = new int[16];
+
+	private int[] heights = new int[16];
+
+	private int[] sizes = new int[16];
+
+	private int first = END;
+
+	private int[] path = new int[32];
+
+	private final boolean ignoreCase;
+
+	private final Balancing balancing;
+
+	private final boolean direct;
+
+	private long bytes = 0;
+
+	public ArenaDictionaryTree(boolean ignoreCase) {
+		this(ignoreCase, Balancing.NONE, false);
+	}
+
+	public ArenaDictionaryTree(boolean ignoreCase, Balancing balancing, boolean direct) {
+		this.ignoreCase = ignoreCase;
+		this.balancing = balancing;
+		this.direct = direct;
+	}
+
+	private final int createNode(String key, Translation value) {
+		var node = this.length() + 1;
+		if (node == this.records.length) {
+			var capacity = node * 2;
+			this.records = Arrays.copyOf(this.records, capacity);
+			this.lefts = Arrays.copyOf(this.lefts, capacity);
+			this.rights = Arrays.copyOf(this.rights, capacity);
+			this.heights = Arrays.copyOf(this.heights, capacity);
+			this.sizes = Arrays.copyOf(this.sizes, capacity);
+		}
+		var word = value.word.getBytes(StandardCharsets.UTF_8);
+		var definition = value.definition.getBytes(StandardCharsets.UTF_8);
+		var length = 12 + key.length() * 2 + word.length + definition.length;
+		if (this.slab == null || this.slab.remaining() < length) {
+			var capacity = Math.max(SLAB, length);
+			this.slab = this.direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+			this.slabs.add(this.slab);
+		}
+		this.records[node] = ((long) (this.slabs.size() - 1) << 32) | this.slab.position();
+		this.slab.putInt(key.length());
+		for (var i = 0; i < key.length(); i++)
+			this.slab.putChar(key.charAt(i));
+		this.slab.putInt(word.length).put(word).putInt(definition.length).put(definition);
+		this.bytes += length;
+		this.lefts[node] = END;
+		this.rights[node] = END;
+		this.heights[node] = 1;
+		this.sizes[node] = 1;
+		return node;
+	}
+
+	public final void add(String key, Translation value) {
+		var depth = 0;
+		var left = false;
+		var item = this.first;
+		while (item != END) {
+			var res = this.compare(key, item);
+			if (res == 0)
+				return;
+			if (depth == this.path.length)
+				this.path = Arrays.copyOf(this.path, depth * 2);
+			this.path[depth++] = item;
+			left = res < 0;
+			item = left ? this.lefts[item] : this.rights[item];
+		}
+		var node = createNode(key, value);
+		if (depth == 0) {
+			this.first = node;
+			return;
+		}
+		if (left) {
+			this.lefts[this.path[depth - 1]] = node;
+		} else {
+			this.rights[this.path[depth - 1]] = node;
+		}
+		while (depth > 0) {
+			item = this.path[--depth];
+			var balanced = this.balance(item);
+			if (balanced == item)
+				continue;
+			if (depth == 0) {
+				this.first = balanced;
+			} else if (this.lefts[this.path[depth - 1]] == item) {
+				this.lefts[this.path[depth - 1]] = balanced;
+			} else {
+				this.rights[this.path[depth - 1]] = balanced;
+			}
+		}
+	}
+
+	public final Boolean find(String query) {
+		return this.lookup(query) != END;
+	}
+
+	public final Translation get(String key) {
+		var item = this.lookup(key);
+		return item != END ? this.value(item) : null;
+	}
+
+	public final int height() {
+		return this.heights[this.first];
+	}
+
+	public final int length() {
+		return this.sizes[this.first];
+	}
+
+	public final long bytes() {
+		return this.bytes;
+	}
+
+	public final String floor(String key) {
+		var floor = END;
+		var item = this.first;
+		while (item != END) {
+			var res = this.compare(key, item);
+			if (res == 0)
+				return this.key(item);
+			if (res < 0) {
+				item = this.lefts[item];
+			} else {
+				floor = item;
+				item = this.rights[item];
+			}
+		}
+		return floor != END ? this.key(floor) : null;
+	}
+
+	public final String ceiling(String key) {
+		var ceiling = END;
+		var item = this.first;
+		while (item != END) {
+			var res = this.compare(key, item);
+			if (res == 0)
+				return this.key(item);
+			if (res > 0) {
+				item = this.rights[item];
+			} else {
+				ceiling = item;
+				item = this.lefts[item];
+			}
+		}
+		return ceiling != END ? this.key(ceiling) : null;
+	}
+
+	public final ArrayList<Map.Entry<String, Translation>> prefix(String prefix, int limit) {
+		var list = new ArrayList<Map.Entry<String, Translation>>();
+		var walker = new Walker(prefix);
+		while (walker.hasNext() && list.size() < limit) {
+			var item = walker.advance();
+			if (!this.startsWith(item, prefix))
+				break;
+			list.add(this.entry(item));
+		}
+		return list;
+	}
+
+	public final ArrayList<String> toInOrder() {
+		var list = new ArrayList<String>(this.length());
+		this.forEach(list::add);
+		return list;
+	}
+
+	@Override
+	public final Iterator<String> iterator() {
+		var walker = new Walker(null);
+		return new Iterator<String>() {
+			@Override
+			public boolean hasNext() {
+				return walker.hasNext();
+			}
+
+			@Override
+			public String next() {
+				return ArenaDictionaryTree.this.key(walker.advance());
+			}
+		};
+	}
+
+	@Override
+	public final Spliterator<String> spliterator() {
+		return Spliterators.spliterator(this.iterator(), this.length(),
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+	}
+
+	public final Stream<String> stream() {
+		return StreamSupport.stream(this.spliterator(), false);
+	}
+
+	public final Stream<Map.Entry<String, Translation>> entries() {
+		var walker = new Walker(null);
+		var iterator = new Iterator<Map.Entry<String, Translation>>() {
+			@Override
+			public boolean hasNext() {
+				return walker.hasNext();
+			}
+
+			@Override
+			public Map.Entry<String, Translation> next() {
+				return ArenaDictionaryTree.this.entry(walker.advance());
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliterator(iterator, this.length(),
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	private final int lookup(String key) {
+		var item = this.first;
+		while (item != END) {
+			var res = this.compare(key, item);
+			if (res == 0)
+				return item;
+			item = res < 0 ? this.lefts[item] : this.rights[item];
+		}
+		return END;
+	}
+
+	private final int compare(String key, int item) { // Same order as compareTo/compareToIgnoreCase, read in place
+		var slab = this.slabs.get((int) (this.records[item] >>> 32));
+		var offset = (int) this.records[item];
+		var length = slab.getInt(offset);
+		var shared = Math.min(key.length(), length);
+		for (var i = 0; i < shared; i++) {
+			var res = this.compare(key.charAt(i), slab.getChar(offset + 4 + i * 2));
+			if (res != 0)
+				return res;
+		}
+		return key.length() - length;
+	}
+
+	private final int compare(char a, char b) {
+		if (a == b)
+			return 0;
+		if (this.ignoreCase) {
+			a = Character.toUpperCase(a);
+			b = Character.toUpperCase(b);
+			if (a != b) {
+				a = Character.toLowerCase(a);
+				b = Character.toLowerCase(b);
+			}
+		}
+		return a - b;
+	}
+
+	private final boolean startsWith(int item, String prefix) {
+		var slab = this.slabs.get((int) (this.records[item] >>> 32));
+		var offset = (int) this.records[item];
+		if (slab.getInt(offset) < prefix.length())
+			return false;
+		for (var i = 0; i < prefix.length(); i++) {
+			if (this.compare(prefix.charAt(i), slab.getChar(offset + 4 + i * 2)) != 0)
+				return false;
+		}
+		return true;
+	}
+
+	private final String key(int item) {
+		var slab = this.slabs.get((int) (this.records[item] >>> 32));
+		var offset = (int) this.records[item];
+		var chars = new char[slab.getInt(offset)];
+		for (var i = 0; i < chars.length; i++)
+			chars[i] = slab.getChar(offset + 4 + i * 2);
+		return new String(chars);
+	}
+
+	private final Translation value(int item) {
+		var slab = this.slabs.get((int) (this.records[item] >>> 32));
+		var offset = (int) this.records[item];
+		offset += 4 + slab.getInt(offset) * 2;
+		var word = this.decode(slab, offset);
+		offset += 4 + slab.getInt(offset);
+		return new Translation(word, this.decode(slab, offset));
+	}
+
+	private final String decode(ByteBuffer slab, int offset) {
+		var length = slab.getInt(offset);
+		if (slab.hasArray())
+			return new String(slab.array(), slab.arrayOffset() + offset + 4, length, StandardCharsets.UTF_8);
+		var bytes = new byte[length];
+		slab.duplicate().position(offset + 4).get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private final Map.Entry<String, Translation> entry(int item) {
+		return new AbstractMap.SimpleImmutableEntry<String, Translation>(this.key(item), this.value(item));
+	}
+
+	private final void update(int item) {
+		this.heights[item] = Math.max(this.heights[this.lefts[item]], this.heights[this.rights[item]]) + 1;
+		this.sizes[item] = this.sizes[this.lefts[item]] + this.sizes[this.rights[item]] + 1;
+	}
+
+	private final int rotateLeft(int item) {
+		var pivot = this.rights[item];
+		this.rights[item] = this.lefts[pivot];
+		this.lefts[pivot] = item;
+		this.update(item);
+		this.update(pivot);
+		return pivot;
+	}
+
+	private final int rotateRight(int item) {
+		var pivot = this.lefts[item];
+		this.lefts[item] = this.rights[pivot];
+		this.rights[pivot] = item;
+		this.update(item);
+		this.update(pivot);
+		return pivot;
+	}
+
+	private final int balance(int item) {
+		this.update(item);
+		if (this.balancing != Balancing.AVL)
+			return item;
+		var factor = this.heights[this.lefts[item]] - this.heights[this.rights[item]];
+		if (factor > 1) {
+			var left = this.lefts[item];
+			if (this.heights[this.lefts[left]] < this.heights[this.rights[left]])
+				this.lefts[item] = this.rotateLeft(left);
+			return this.rotateRight(item);
+		} else if (factor < -1) {
+			var right = this.rights[item];
+			if (this.heights[this.rights[right]] < this.heights[this.lefts[right]])
+				this.rights[item] = this.rotateRight(right);
+			return this.rotateLeft(item);
+		}
+		return item;
+	}
+
+	private final class Walker { // In-order from the first key not below the given bound (or from the start)
+		private int[] items;
+		private int top = 0;
+
+		private Walker(String from) {
+			this.items = new int[Math.max(8, ArenaDictionaryTree.this.height() + 1)];
+			var item = ArenaDictionaryTree.this.first;
+			while (item != END) {
+				if (from == null || ArenaDictionaryTree.this.compare(from, item) <= 0) {
+					this.push(item);
+					item = ArenaDictionaryTree.this.lefts[item];
+				} else {
+					item = ArenaDictionaryTree.this.rights[item];
+				}
+			}
+		}
+
+		private void push(int item) {
+			if (this.top == this.items.length)
+				this.items = Arrays.copyOf(this.items, this.top * 2);
+			this.items[this.top++] = item;
+		}
+
+		private boolean hasNext() {
+			return this.top > 0;
+		}
+
+		private int advance() {
+			if (this.top == 0)
+				throw new NoSuchElementException("Tried to iterate past the last item");
+			var item = this.items[--this.top];
+			var tree = ArenaDictionaryTree.this;
+			for (var next = tree.rights[item]; next != END; next = tree.lefts[next])
+				this.push(next);
+			return item;
+		}
+	}
+}
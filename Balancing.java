@@ -0,0 +1,3 @@
+public enum Balancing {
+	NONE, AVL
+}
@@ -0,0 +1,103 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+public final class Batcher<TIn, TOut> {
+	private final static ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		var thread = new Thread(runnable, "batcher");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Function<List<TIn>, CompletableFuture<List<TOut>>> batch;
+
+	private final Function<TIn, CompletableFuture<TOut>> single;
+
+	private final int size;
+
+	private final long delay;
+
+	private ArrayList<TIn> inputs = new ArrayList<TIn>();
+
+	private ArrayList<CompletableFuture<TOut>> outputs = new ArrayList<CompletableFuture<TOut>>();
+
+	private ScheduledFuture<?> scheduled = null;
+
+	public Batcher(Function<List<TIn>, CompletableFuture<List<TOut>>> batch,
+			Function<TIn, CompletableFuture<TOut>> single, int size, long delay) {
+		this.batch = batch;
+		this.single = single;
+		this.size = size;
+		this.delay = delay;
+	}
+
+	public final CompletableFuture<TOut> submit(TIn input) {
+		var output = new CompletableFuture<TOut>();
+		var full = false;
+		synchronized (this) {
+			this.inputs.add(input);
+			this.outputs.add(output);
+			full = this.inputs.size() >= this.size;
+			if (!full && this.scheduled == null)
+				this.scheduled = TIMER.schedule(this::flush, this.delay, TimeUnit.MILLISECONDS);
+		}
+		if (full)
+			this.flush();
+		return output;
+	}
+
+	public final void flush() {
+		ArrayList<TIn> inputs;
+		ArrayList<CompletableFuture<TOut>> outputs;
+		synchronized (this) {
+			if (this.scheduled != null) {
+				this.scheduled.cancel(false);
+				this.scheduled = null;
+			}
+			if (this.inputs.isEmpty())
+				return;
+			inputs = this.inputs;
+			outputs = this.outputs;
+			this.inputs = new ArrayList<TIn>();
+			this.outputs = new ArrayList<CompletableFuture<TOut>>();
+		}
+		if (inputs.size() == 1) {
+			this.fallback(inputs.get(0), outputs.get(0));
+			return;
+		}
+		CompletableFuture<List<TOut>> results;
+		try {
+			results = this.batch.apply(inputs);
+		} catch (RuntimeException e) {
+			results = CompletableFuture.failedFuture(e);
+		}
+		results.whenComplete((list, error) -> {
+			for (var i = 0; i < inputs.size(); i++) {
+				if (error == null && list != null && list.size() == inputs.size() && list.get(i) != null) {
+					outputs.get(i).complete(list.get(i));
+				} else {
+					this.fallback(inputs.get(i), outputs.get(i));
+				}
+			}
+		});
+	}
+
+	private void fallback(TIn input, CompletableFuture<TOut> output) {
+		try {
+			this.single.apply(input).whenComplete((result, error) -> {
+				if (error != null) {
+					output.completeExceptionally(error);
+				} else {
+					output.complete(result);
+				}
+			});
+		} catch (RuntimeException e) {
+			output.completeExceptionally(e);
+		}
+	}
+}
@@ -0,0 +1,452 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeMap;
+
+public final class Benchmark { // Run with "java -Xmx4g Benchmark [sizes, e.g. 1000,1000000] [warmup] [iterations]"
+	private final static long SEED = 42;
+
+	private final static int DEGENERATE = 10_000; // Unbalanced inserts of sorted keys are quadratic beyond this
+
+	private static long sink = 0; // Consumes results so the JIT can't drop the measured work
+
+	private enum Keys {
+		RANDOM, SORTED, ZIPFIAN
+	}
+
+	private static abstract class Subject {
+		private final String name;
+
+		private Subject(String name) {
+			this.name = name;
+		}
+
+		abstract void add(Integer key);
+
+		abstract boolean get(Integer key);
+
+		abstract int length();
+
+		abstract Iterator<? extends Number> iterator(Traversal order); // null if the traversal isn't supported
+	}
+
+	private interface Factory {
+		Subject create();
+	}
+
+	private static abstract class Dictionary { // String keys and Translation values, as the cache holds them
+		private final String name;
+
+		private Dictionary(String name) {
+			this.name = name;
+		}
+
+		abstract void add(String key, Translation value);
+
+		abstract int length();
+	}
+
+	private interface DictionaryFactory {
+		Dictionary create();
+	}
+
+	private interface Operation {
+		long run(Subject subject, Integer[] keys);
+	}
+
+	private final static ArrayList<Factory> subjects() {
+		var subjects = new ArrayList<Factory>();
+		for (var balancing : Balancing.values()) {
+			subjects.add(() -> new Subject("BinaryTree/" + balancing) {
+				private final BinaryTree<Integer> tree = new BinaryTree<Integer>(Integer::compareTo, balancing);
+
+				void add(Integer key) {
+					this.tree.add(key);
+				}
+
+				boolean get(Integer key) {
+					return this.tree.find(key);
+				}
+
+				int length() {
+					return this.tree.length();
+				}
+
+				Iterator<? extends Number> iterator(Traversal order) {
+					return this.tree.iterator(order);
+				}
+			});
+			subjects.add(() -> new Subject("IntBinaryTree/" + balancing) {
+				private final IntBinaryTree tree = new IntBinaryTree(balancing);
+
+				void add(Integer key) {
+					this.tree.add(key.intValue());
+				}
+
+				boolean get(Integer key) {
+					return this.tree.find(key.intValue());
+				}
+
+				int length() {
+					return this.tree.length();
+				}
+
+				Iterator<? extends Number> iterator(Traversal order) {
+					return this.tree.iterator(order);
+				}
+			});
+			subjects.add(() -> new Subject("LongBinaryTree/" + balancing) {
+				private final LongBinaryTree tree = new LongBinaryTree(balancing);
+
+				void add(Integer key) {
+					this.tree.add(key.longValue());
+				}
+
+				boolean get(Integer key) {
+					return this.tree.find(key.longValue());
+				}
+
+				int length() {
+					return this.tree.length();
+				}
+
+				Iterator<? extends Number> iterator(Traversal order) {
+					return this.tree.iterator(order);
+				}
+			});
+			subjects.add(() -> new Subject("DictionaryTree/" + balancing) {
+				private final DictionaryTree<Integer, Integer> tree = new DictionaryTree<Integer, Integer>(
+						Integer::compareTo, balancing);
+
+				void add(Integer key) {
+					this.tree.add(key, key);
+				}
+
+				boolean get(Integer key) {
+					return this.tree.get(key) != null;
+				}
+
+				int length() {
+					return this.tree.length();
+				}
+
+				Iterator<? extends Number> iterator(Traversal order) {
+					return this.tree.iterator(order);
+				}
+			});
+		}
+		subjects.add(() -> new Subject("FrozenBinaryTree") { // Built as AVL tree, frozen before the first read
+			private final BinaryTree<Integer> tree = new BinaryTree<Integer>(Integer::compareTo, Balancing.AVL);
+			private FrozenBinaryTree<Integer> frozen = null;
+
+			void add(Integer key) {
+				this.tree.add(key);
+				this.frozen = null;
+			}
+
+			boolean get(Integer key) {
+				return this.frozen().find(key);
+			}
+
+			int length() {
+				return this.frozen().length();
+			}
+
+			Iterator<? extends Number> iterator(Traversal order) {
+				return this.frozen().iterator(order);
+			}
+
+			private FrozenBinaryTree<Integer> frozen() {
+				if (this.frozen == null)
+					this.frozen = this.tree.freeze();
+				return this.frozen;
+			}
+		});
+		subjects.add(() -> new Subject("FrozenDictionaryTree") {
+			private final DictionaryTree<Integer, Integer> tree = new DictionaryTree<Integer, Integer>(
+					Integer::compareTo, Balancing.AVL);
+			private FrozenDictionaryTree<Integer, Integer> frozen = null;
+
+			void add(Integer key) {
+				this.tree.add(key, key);
+				this.frozen = null;
+			}
+
+			boolean get(Integer key) {
+				return this.frozen().get(key) != null;
+			}
+
+			int length() {
+				return this.frozen().length();
+			}
+
+			Iterator<? extends Number> iterator(Traversal order) {
+				return this.frozen().iterator(order);
+			}
+
+			private FrozenDictionaryTree<Integer, Integer> frozen() {
+				if (this.frozen == null)
+					this.frozen = this.tree.freeze();
+				return this.frozen;
+			}
+		});
+		subjects.add(() -> new Subject("TreeMap") {
+			private final TreeMap<Integer, Integer> map = new TreeMap<Integer, Integer>();
+
+			void add(Integer key) {
+				this.map.put(key, key);
+			}
+
+			boolean get(Integer key) {
+				return this.map.get(key) != null;
+			}
+
+			int length() {
+				return this.map.size();
+			}
+
+			Iterator<? extends Number> iterator(Traversal order) {
+				return order == Traversal.IN_ORDER ? this.map.keySet().iterator() : null;
+			}
+		});
+		subjects.add(() -> new Subject("HashMap") {
+			private final HashMap<Integer, Integer> map = new HashMap<Integer, Integer>();
+
+			void add(Integer key) {
+				this.map.put(key, key);
+			}
+
+			boolean get(Integer key) {
+				return this.map.get(key) != null;
+			}
+
+			int length() {
+				return this.map.size();
+			}
+
+			Iterator<? extends Number> iterator(Traversal order) { // Unordered, listed as in-order for comparison
+				return order == Traversal.IN_ORDER ? this.map.keySet().iterator() : null;
+			}
+		});
+		return subjects;
+	}
+
+	private final static ArrayList<DictionaryFactory> dictionaries() {
+		var dictionaries = new ArrayList<DictionaryFactory>();
+		dictionaries.add(() -> new Dictionary("DictionaryTree/AVL") {
+			private final DictionaryTree<String, Translation> tree = new DictionaryTree<String, Translation>(
+					String::compareToIgnoreCase, Balancing.AVL);
+
+			void add(String key, Translation value) {
+				this.tree.add(key, value);
+			}
+
+			int length() {
+				return this.tree.length();
+			}
+		});
+		for (var direct : new boolean[] { false, true }) {
+			dictionaries.add(() -> new Dictionary("ArenaDictionaryTree/" + (direct ? "direct" : "heap")) {
+				private final ArenaDictionaryTree tree = new ArenaDictionaryTree(true, Balancing.AVL, direct);
+
+				void add(String key, Translation value) {
+					this.tree.add(key, value);
+				}
+
+				int length() {
+					return this.tree.length();
+				}
+			});
+		}
+		dictionaries.add(() -> new Dictionary("TreeMap") {
+			private final TreeMap<String, Translation> map = new TreeMap<String, Translation>(
+					String.CASE_INSENSITIVE_ORDER);
+
+			void add(String key, Translation value) {
+				this.map.put(key, value);
+			}
+
+			int length() {
+				return this.map.size();
+			}
+		});
+		dictionaries.add(() -> new Dictionary("HashMap") {
+			private final HashMap<String, Translation> map = new HashMap<String, Translation>();
+
+			void add(String key, Translation value) {
+				this.map.put(key, value);
+			}
+
+			int length() {
+				return this.map.size();
+			}
+		});
+		return dictionaries;
+	}
+
+	private final static Integer[] keys(Keys distribution, int size) {
+		var random = new Random(SEED);
+		var permutation = new int[size];
+		for (var i = 0; i < size; i++)
+			permutation[i] = i;
+		for (var i = size - 1; i > 0; i--) {
+			var j = random.nextInt(i + 1);
+			var swap = permutation[i];
+			permutation[i] = permutation[j];
+			permutation[j] = swap;
+		}
+		var keys = new Integer[size];
+		switch (distribution) {
+			case RANDOM:
+				for (var i = 0; i < size; i++)
+					keys[i] = permutation[i];
+				break;
+			case SORTED:
+				for (var i = 0; i < size; i++)
+					keys[i] = i;
+				break;
+			case ZIPFIAN: // Ranks drawn with exponent 0.99, hot keys scattered over the key space
+				var cumulative = new double[size];
+				var sum = 0.0;
+				for (var i = 0; i < size; i++)
+					cumulative[i] = sum += 1 / Math.pow(i + 1, 0.99);
+				for (var i = 0; i < size; i++) {
+					var rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+					keys[i] = permutation[Math.min(rank < 0 ? -rank - 1 : rank, size - 1)];
+				}
+				break;
+		}
+		return keys;
+	}
+
+	private final static long allocated() {
+		var threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return 0;
+	}
+
+	private final static long used() { // Heap left after collecting, direct buffers aren't part of it
+		var memory = ManagementFactory.getMemoryMXBean();
+		var used = Long.MAX_VALUE;
+		for (var i = 0; i < 4; i++) {
+			System.gc();
+			used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+		}
+		return used;
+	}
+
+	private final static long collections() {
+		var count = 0L;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+			count += Math.max(0, collector.getCollectionCount());
+		return count;
+	}
+
+	private final static void measure(String operation, Subject subject, Keys distribution, Integer[] keys,
+			int warmup, int iterations, Operation run) {
+		for (var i = 0; i < warmup; i++)
+			sink += run.run(subject, keys);
+		var times = new double[iterations];
+		var bytes = 0L;
+		var gcs = collections();
+		var ops = 0L;
+		for (var i = 0; i < iterations; i++) {
+			var allocated = allocated();
+			var start = System.nanoTime();
+			var count = run.run(subject, keys);
+			times[i] = (System.nanoTime() - start) / (double) Math.max(1, count);
+			bytes += allocated() - allocated;
+			ops += count;
+			sink += count;
+		}
+		var mean = Arrays.stream(times).average().orElse(0);
+		var deviation = Math.sqrt(Arrays.stream(times).map(time -> (time - mean) * (time - mean)).sum()
+				/ Math.max(1, iterations - 1));
+		System.out.println(String.format("%-12s %-26s %-8s %9d %12.1f %10.1f %10.1f %5d", operation, subject.name,
+				distribution, keys.length, mean, deviation, bytes / (double) Math.max(1, ops), collections() - gcs));
+	}
+
+	private final static void footprint(Dictionary dictionary, Integer[] keys) {
+		var before = used();
+		for (var key : keys) // Fresh strings per entry, so only the dictionary keeps them alive
+			dictionary.add("word" + key, new Translation("Wort" + key, "Definition of word number " + key + "."));
+		var after = used();
+		sink += dictionary.length();
+		Reference.reachabilityFence(dictionary);
+		System.out.println(String.format("%-12s %-26s %-8s %9d %12.1f", "heap", dictionary.name, Keys.RANDOM,
+				keys.length, (after - before) / (double) keys.length));
+	}
+
+	private final static long traverse(Iterator<? extends Number> iterator) {
+		var count = 0L;
+		var checksum = 0L;
+		while (iterator.hasNext()) {
+			checksum += iterator.next().longValue();
+			count += 1;
+		}
+		sink += checksum;
+		return count;
+	}
+
+	public final static void main(String[] args) {
+		var sizes = Arrays.stream((args.length > 0 ? args[0] : "1000,10000,100000,1000000").split(","))
+				.mapToInt(size -> (int) Double.parseDouble(size)).toArray();
+		var warmup = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		var iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		System.out.println(String.format("%-12s %-26s %-8s %9s %12s %10s %10s %5s", "Operation", "Structure", "Keys",
+				"Size", "ns/op", "+-", "B/op", "GCs"));
+		for (var size : sizes) {
+			for (var distribution : Keys.values()) {
+				var keys = keys(distribution, size);
+				for (var factory : subjects()) {
+					var subject = factory.create();
+					if (subject.name.endsWith("/" + Balancing.NONE) && distribution == Keys.SORTED && size > DEGENERATE)
+						continue;
+					measure("add", subject, distribution, keys, warmup, iterations, (ignored, input) -> {
+						var fresh = factory.create();
+						for (var key : input)
+							fresh.add(key);
+						sink += fresh.length();
+						return input.length;
+					});
+					for (var key : keys)
+						subject.add(key);
+					measure("get", subject, distribution, keys, warmup, iterations, (target, input) -> {
+						var hits = 0L;
+						for (var key : input)
+							hits += target.get(key) ? 1 : 0;
+						sink += hits;
+						return input.length;
+					});
+					measure("length", subject, distribution, keys, warmup, iterations, (target, input) -> {
+						var total = 0L;
+						for (var i = 0; i < input.length; i++)
+							total += target.length();
+						sink += total;
+						return input.length;
+					});
+					for (var order : Traversal.values()) {
+						if (subject.iterator(order) == null)
+							continue;
+						measure(order.toString().toLowerCase(), subject, distribution, keys, warmup, iterations,
+								(target, input) -> traverse(target.iterator(order)));
+					}
+				}
+			}
+		}
+		System.out.println(String.format("%n%-12s %-26s %-8s %9s %12s", "Operation", "Structure", "Keys", "Size",
+				"B/entry"));
+		for (var size : sizes) { // Retained heap of String -> Translation entries, keys and values included
+			var keys = keys(Keys.RANDOM, size);
+			for (var factory : dictionaries())
+				footprint(factory.create(), keys);
+		}
+		System.out.println("Checksum: " + sink);
+	}
+}
@@ -1,24 +1,55 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public final class BinaryTree<T> {
-	private Item<T> first = new End<T>();
+public final class BinaryTree<T> implements Iterable<T> {
+	private final Item<T> end = new End<T>();
+
+	private Item<T> first = this.end;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Item<T>[] path = new Item[32];
 
 	private final Comparator<? super T> comparator;
 
+	private final Balancing balancing;
+
+	private int count = 0;
+
+	private Metrics.Tree metrics = null; // Opt-in, see instrument()
+
 	private final Node createNode(T content) {
 		var node = new Node();
 		node.setContent(content);
+		node.setNextLeft(this.end);
+		node.setNextRight(this.end);
+		node.setHeight(1);
 		return node;
 	}
 
 	public BinaryTree(Comparator<? super T> comparator) {
+		this(comparator, Balancing.NONE);
+	}
+
+	public BinaryTree(Comparator<? super T> comparator, Balancing balancing) {
 		this.comparator = comparator;
+		this.balancing = balancing;
 	}
 
 	@SafeVarargs
 	public BinaryTree(Comparator<? super T> comparator, T... nodes) {
-		this(comparator);
+		this(comparator, Balancing.NONE, nodes);
+	}
+
+	@SafeVarargs
+	public BinaryTree(Comparator<? super T> comparator, Balancing balancing, T... nodes) {
+		this(comparator, balancing);
 		this.add(nodes);
 	}
 
@@ -29,23 +60,164 @@ public final class BinaryTree<T> {
 	}
 
 	public final void add(T content) {
-		this.first = this.first.add(createNode(content));
+		var depth = 0;
+		var left = false;
+		var item = this.first;
+		while (!item.isEnd()) {
+			var res = comparator.compare(content, item.getContent());
+			if (res == 0)
+				return;
+			if (depth == this.path.length)
+				this.path = Arrays.copyOf(this.path, depth * 2);
+			this.path[depth++] = item;
+			left = res < 0;
+			item = left ? item.getNextLeft() : item.getNextRight();
+		}
+		var node = createNode(content);
+		this.count += 1;
+		if (depth == 0) {
+			this.first = node;
+			return;
+		}
+		if (left) {
+			this.path[depth - 1].setNextLeft(node);
+		} else {
+			this.path[depth - 1].setNextRight(node);
+		}
+		while (depth > 0) {
+			item = this.path[--depth];
+			this.path[depth] = null;
+			var balanced = this.balance(item);
+			if (balanced == item)
+				continue;
+			if (depth == 0) {
+				this.first = balanced;
+			} else if (this.path[depth - 1].getNextLeft() == item) {
+				this.path[depth - 1].setNextLeft(balanced);
+			} else {
+				this.path[depth - 1].setNextRight(balanced);
+			}
+		}
 	}
 
 	public final Boolean find(T query) {
-		return this.first.find(query);
+		var comparisons = 0;
+		var item = this.first;
+		while (!item.isEnd()) {
+			var res = comparator.compare(query, item.getContent());
+			comparisons += 1;
+			if (res == 0)
+				break;
+			item = res < 0 ? item.getNextLeft() : item.getNextRight();
+		}
+		if (this.metrics != null)
+			this.metrics.lookup(comparisons);
+		return !item.isEnd();
+	}
+
+	public final int height() {
+		return this.first.getHeight();
+	}
+
+	public final Metrics.Tree instrument() { // Starts counting comparisons per lookup of this tree
+		if (this.metrics == null)
+			this.metrics = new Metrics.Tree(this::height);
+		return this.metrics;
+	}
+
+	public final int length() {
+		return this.count;
+	}
+
+	public final FrozenBinaryTree<T> freeze() {
+		return new FrozenBinaryTree<T>(this.comparator, this.toInOrder().toArray());
+	}
+
+	private final void update(Item<T> item) {
+		item.setHeight(Math.max(item.getNextLeft().getHeight(), item.getNextRight().getHeight()) + 1);
+	}
+
+	private final Item<T> rotateLeft(Item<T> item) {
+		var pivot = item.getNextRight();
+		item.setNextRight(pivot.getNextLeft());
+		pivot.setNextLeft(item);
+		this.update(item);
+		this.update(pivot);
+		return pivot;
+	}
+
+	private final Item<T> rotateRight(Item<T> item) {
+		var pivot = item.getNextLeft();
+		item.setNextLeft(pivot.getNextRight());
+		pivot.setNextRight(item);
+		this.update(item);
+		this.update(pivot);
+		return pivot;
+	}
+
+	private final Item<T> balance(Item<T> item) {
+		this.update(item);
+		if (this.balancing != Balancing.AVL)
+			return item;
+		var factor = item.getNextLeft().getHeight() - item.getNextRight().getHeight();
+		if (factor > 1) {
+			var left = item.getNextLeft();
+			if (left.getNextLeft().getHeight() < left.getNextRight().getHeight())
+				item.setNextLeft(this.rotateLeft(left));
+			return this.rotateRight(item);
+		} else if (factor < -1) {
+			var right = item.getNextRight();
+			if (right.getNextRight().getHeight() < right.getNextLeft().getHeight())
+				item.setNextRight(this.rotateRight(right));
+			return this.rotateLeft(item);
+		}
+		return item;
 	}
 
 	public final ArrayList<T> toPreOrder() {
-		return this.first.toPreOrder();
+		return this.toList(Traversal.PRE_ORDER);
 	}
 
 	public final ArrayList<T> toInOrder() {
-		return this.first.toInOrder();
+		return this.toList(Traversal.IN_ORDER);
 	}
 
 	public final ArrayList<T> toPostOrder() {
-		return this.first.toPostOrder();
+		return this.toList(Traversal.POST_ORDER);
+	}
+
+	@Override
+	public final Iterator<T> iterator() {
+		return this.iterator(Traversal.IN_ORDER);
+	}
+
+	public final Iterator<T> iterator(Traversal order) {
+		return new Walker(this.first, order, this.count);
+	}
+
+	@Override
+	public final Spliterator<T> spliterator() {
+		return this.spliterator(Traversal.IN_ORDER);
+	}
+
+	public final Spliterator<T> spliterator(Traversal order) {
+		return new Walker(this.first, order, this.count);
+	}
+
+	public final Stream<T> stream() {
+		return this.stream(Traversal.IN_ORDER);
+	}
+
+	public final Stream<T> stream(Traversal order) {
+		return StreamSupport.stream(this.spliterator(order), false);
+	}
+
+	private final ArrayList<T> toList(Traversal order) {
+		var list = new ArrayList<T>(this.count);
+		var walker = new Walker(this.first, order, this.count);
+		while (walker.hasNext())
+			list.add(walker.next());
+		return list;
 	}
 
 	private interface Item<T> {
@@ -61,21 +233,18 @@ public final class BinaryTree<T> {
 
 		public void setNextRight(Item<T> next);
 
-		public Item<T> add(Item<T> node);
+		public int getHeight();
 
-		public Boolean find(T query);
+		public void setHeight(int height);
 
-		public ArrayList<T> toPreOrder();
-
-		public ArrayList<T> toInOrder();
-
-		public ArrayList<T> toPostOrder();
+		public boolean isEnd();
 	}
 
 	private final class Node implements Item<T> {
 		private T content = null;
 		private Item<T> nextLeft = null;
 		private Item<T> nextRight = null;
+		private int height = 0;
 
 		@Override
 		public T getContent() {
@@ -108,50 +277,149 @@ public final class BinaryTree<T> {
 		}
 
 		@Override
-		public Item<T> add(Item<T> node) {
-			var res = comparator.compare(node.getContent(), this.getContent());
-			if (res < 0) {
-				this.setNextLeft(this.getNextLeft().add(node));
-			} else if (res > 0) {
-				this.setNextRight(this.getNextRight().add(node));
+		public int getHeight() {
+			return this.height;
+		}
+
+		@Override
+		public void setHeight(int height) {
+			this.height = height;
+		}
+
+		@Override
+		public boolean isEnd() {
+			return false;
+		}
+	}
+
+	private final class Walker implements Iterator<T>, Spliterator<T> {
+		private Item<T>[] items;
+		private boolean[] visits;
+		private int top = 0;
+		private long estimate;
+		private final Traversal order;
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private Walker(Item<T> root, Traversal order, long estimate) {
+			this.items = new Item[Math.max(8, root.getHeight() * 2 + 2)];
+			this.visits = new boolean[this.items.length];
+			this.order = order;
+			this.estimate = estimate;
+			this.push(root, false);
+		}
+
+		private Walker(Item<T>[] items, boolean[] visits, Traversal order, long estimate) {
+			this.items = items;
+			this.visits = visits;
+			this.top = items.length;
+			this.order = order;
+			this.estimate = estimate;
+		}
+
+		private void push(Item<T> item, boolean visit) {
+			if (item.isEnd())
+				return;
+			if (this.top == this.items.length) {
+				this.items = Arrays.copyOf(this.items, this.top * 2);
+				this.visits = Arrays.copyOf(this.visits, this.top * 2);
+			}
+			this.items[this.top] = item;
+			this.visits[this.top++] = visit;
+		}
+
+		private void expand(Item<T> item) {
+			switch (this.order) {
+				case PRE_ORDER:
+					this.push(item.getNextRight(), false);
+					this.push(item.getNextLeft(), false);
+					this.push(item, true);
+					break;
+				case IN_ORDER:
+					this.push(item.getNextRight(), false);
+					this.push(item, true);
+					this.push(item.getNextLeft(), false);
+					break;
+				case POST_ORDER:
+					this.push(item, true);
+					this.push(item.getNextRight(), false);
+					this.push(item.getNextLeft(), false);
+					break;
 			}
-			return this;
+		}
+
+		private Item<T> advance() {
+			while (this.top > 0) {
+				var item = this.items[--this.top];
+				this.items[this.top] = null;
+				if (this.visits[this.top]) {
+					if (this.estimate > 0 && this.estimate != Long.MAX_VALUE)
+						this.estimate -= 1;
+					return item;
+				}
+				this.expand(item);
+			}
+			return null;
 		}
 
 		@Override
-		public Boolean find(T query) {
-			var res = comparator.compare(query, this.getContent());
-			if (res < 0) {
-				return this.getNextLeft().find(query);
-			} else if (res > 0) {
-				return this.getNextRight().find(query);
+		public boolean hasNext() {
+			while (this.top > 0 && !this.visits[this.top - 1]) {
+				var item = this.items[--this.top];
+				this.items[this.top] = null;
+				this.expand(item);
 			}
+			return this.top > 0;
+		}
+
+		@Override
+		public T next() {
+			var item = this.advance();
+			if (item == null)
+				throw new NoSuchElementException("Tried to iterate past the last item");
+			return item.getContent();
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			var item = this.advance();
+			if (item == null)
+				return false;
+			action.accept(item.getContent());
 			return true;
 		}
 
 		@Override
-		public ArrayList<T> toPreOrder() {
-			var list = new ArrayList<T>();
-			list.add(this.getContent());
-			list.addAll(this.getNextLeft().toPreOrder());
-			list.addAll(this.getNextRight().toPreOrder());
-			return list;
+		public void forEachRemaining(Consumer<? super T> action) {
+			for (var item = this.advance(); item != null; item = this.advance())
+				action.accept(item.getContent());
 		}
 
 		@Override
-		public ArrayList<T> toInOrder() {
-			var list = this.getNextLeft().toInOrder();
-			list.add(this.getContent());
-			list.addAll(this.getNextRight().toInOrder());
-			return list;
+		public Spliterator<T> trySplit() {
+			if (this.top == 1 && !this.visits[0]) {
+				var item = this.items[--this.top];
+				this.items[this.top] = null;
+				this.expand(item);
+			}
+			if (this.top < 2)
+				return null;
+			var split = this.top / 2;
+			var prefix = new Walker(Arrays.copyOfRange(this.items, split, this.top),
+					Arrays.copyOfRange(this.visits, split, this.top), this.order, this.estimate / 2);
+			Arrays.fill(this.items, split, this.top, null);
+			this.top = split;
+			this.estimate -= prefix.estimate;
+			return prefix;
 		}
 
 		@Override
-		public ArrayList<T> toPostOrder() {
-			var list = this.getNextLeft().toPostOrder();
-			list.addAll(this.getNextRight().toPostOrder());
-			list.add(this.getContent());
-			return list;
+		public long estimateSize() {
+			return this.top == 0 ? 0 : this.estimate;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.DISTINCT;
 		}
 	}
 
@@ -187,30 +455,18 @@ public final class BinaryTree<T> {
 		}
 
 		@Override
-		public Item<S> add(Item<S> node) {
-			node.setNextLeft(this);
-			node.setNextRight(this);
-			return node;
-		}
-
-		@Override
-		public Boolean find(S query) {
-			return false;
+		public int getHeight() {
+			return 0;
 		}
 
 		@Override
-		public ArrayList<S> toPreOrder() {
-			return new ArrayList<S>();
+		public void setHeight(int height) {
+			throw new IndexOutOfBoundsException("Sried to set out-of-bounds height");
 		}
 
 		@Override
-		public ArrayList<S> toInOrder() {
-			return new ArrayList<S>();
-		}
-
-		@Override
-		public ArrayList<S> toPostOrder() {
-			return new ArrayList<S>();
+		public boolean isEnd() {
+			return true;
 		}
 	}
 }
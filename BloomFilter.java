@@ -0,0 +1,78 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.function.ToLongFunction;
+
+public final class BloomFilter<T> {
+	private final static int MAGIC = 0x424c4f4d;
+
+	private final static int HEADER = 8;
+
+	private final LongBuffer bits; // On the heap, or a read-only view of a mapped file
+
+	private final long size;
+
+	private final int hashes;
+
+	private final ToLongFunction<? super T> hasher;
+
+	public BloomFilter(int expected, double falsePositives, ToLongFunction<? super T> hasher) {
+		var size = (long) Math.ceil(-Math.max(1, expected) * Math.log(falsePositives) / (Math.log(2) * Math.log(2)));
+		this.bits = LongBuffer.wrap(new long[(int) Math.max(1, (size + 63) / 64)]);
+		this.size = this.bits.capacity() * 64L;
+		this.hashes = Math.max(1, (int) Math.round(this.size / (double) Math.max(1, expected) * Math.log(2)));
+		this.hasher = hasher;
+	}
+
+	private BloomFilter(LongBuffer bits, int hashes, ToLongFunction<? super T> hasher) {
+		this.bits = bits;
+		this.size = bits.capacity() * 64L;
+		this.hashes = hashes;
+		this.hasher = hasher;
+	}
+
+	public static <T> BloomFilter<T> read(ByteBuffer buffer, ToLongFunction<? super T> hasher) throws IOException {
+		if (buffer.capacity() < HEADER + 8 || buffer.getInt(0) != MAGIC || buffer.getInt(4) < 1
+				|| (buffer.capacity() - HEADER) % 8 != 0)
+			throw new IOException("Unexpected Bloom filter header");
+		var hashes = buffer.getInt(4);
+		return new BloomFilter<T>(buffer.duplicate().position(HEADER).slice().asLongBuffer(), hashes, hasher);
+	}
+
+	public final void write(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(this.hashes);
+		for (var i = 0; i < this.bits.capacity(); i++)
+			out.writeLong(this.bits.get(i));
+	}
+
+	public final void add(T value) {
+		var hash = this.hasher.applyAsLong(value);
+		var step = mix(hash) | 1;
+		for (var i = 0; i < this.hashes; i++, hash += step) {
+			var bit = Long.remainderUnsigned(hash, this.size);
+			var index = (int) (bit >>> 6);
+			this.bits.put(index, this.bits.get(index) | 1L << bit);
+		}
+	}
+
+	public final boolean mightContain(T value) { // false means the value was definitely never added
+		var hash = this.hasher.applyAsLong(value);
+		var step = mix(hash) | 1;
+		for (var i = 0; i < this.hashes; i++, hash += step) {
+			var bit = Long.remainderUnsigned(hash, this.size);
+			if ((this.bits.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	private final static long mix(long hash) { // Second, independent hash for double hashing
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		return hash ^ (hash >>> 33);
+	}
+}
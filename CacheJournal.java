@@ -0,0 +1,308 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+public final class CacheJournal implements Closeable {
+	private final static int MAX_RECORD = 1 << 24;
+
+	private final static Map.Entry<String, Translation> STOP = Map.entry("", new Translation("", ""));
+
+	private final static Map.Entry<String, Translation> CHECKPOINT = Map.entry("", new Translation("", ""));
+
+	private final Path path;
+
+	private final String snapshot;
+
+	private final boolean ignoreCase;
+
+	private final Comparator<? super String> comparator;
+
+	private final int batchSize;
+
+	private final long batchDelay;
+
+	private final long compactionSize;
+
+	private final FileChannel channel;
+
+	private final ArrayList<Map.Entry<String, Translation>> recovered;
+
+	private final LinkedBlockingQueue<Map.Entry<String, Translation>> queue = new LinkedBlockingQueue<Map.Entry<String, Translation>>();
+
+	private final Thread writer;
+
+	private long appended = 0;
+
+	private long committed = 0;
+
+	private long threshold;
+
+	private long requested = 0;
+
+	private long checkpointed = 0;
+
+	private boolean merged = false;
+
+	private boolean closed = false;
+
+	private volatile IOException failure = null;
+
+	private CacheJournal(String filename, String snapshot, boolean ignoreCase, int batchSize, long batchDelay,
+			long compactionSize) throws IOException {
+		this.path = Paths.get(filename);
+		this.snapshot = snapshot;
+		this.ignoreCase = ignoreCase;
+		this.comparator = ignoreCase ? String::compareToIgnoreCase : String::compareTo;
+		this.batchSize = batchSize;
+		this.batchDelay = batchDelay;
+		this.compactionSize = compactionSize;
+		this.threshold = compactionSize;
+		this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		this.recovered = new ArrayList<Map.Entry<String, Translation>>();
+		var valid = this.read(this.recovered);
+		if (valid < this.channel.size()) {
+			this.channel.truncate(valid);
+			this.channel.force(true);
+		}
+		this.channel.position(valid);
+		this.writer = new Thread(this::run, "cache-journal");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	public static CacheJournal open(String filename, String snapshot, boolean ignoreCase, int batchSize,
+			long batchDelay, long compactionSize) throws IOException {
+		return new CacheJournal(filename, snapshot, ignoreCase, batchSize, batchDelay, compactionSize);
+	}
+
+	public final List<Map.Entry<String, Translation>> recovered() {
+		return this.recovered;
+	}
+
+	public final void append(String key, Translation translation) throws IOException {
+		if (this.failure != null)
+			throw this.failure;
+		synchronized (this) {
+			if (this.closed) // The writer is gone, the record would never reach the file
+				throw new IllegalStateException("Tried to append \"" + key + "\" to a closed cache journal");
+			this.appended += 1;
+			this.queue.add(Map.entry(key, translation));
+		}
+	}
+
+	public final void flush() throws IOException, InterruptedException {
+		synchronized (this) {
+			var target = this.appended;
+			while (this.committed < target && this.failure == null)
+				this.wait();
+		}
+		if (this.failure != null)
+			throw this.failure;
+	}
+
+	public final boolean checkpoint() throws IOException, InterruptedException { // Merges all appends into the snapshot
+		if (this.failure != null)
+			throw this.failure;
+		synchronized (this) {
+			if (this.closed)
+				throw new IllegalStateException("Tried to checkpoint a closed cache journal");
+			var target = ++this.requested;
+			this.queue.add(CHECKPOINT);
+			while (this.checkpointed < target && this.failure == null)
+				this.wait();
+			if (this.failure == null)
+				return this.merged;
+		}
+		throw this.failure;
+	}
+
+	@Override
+	public final void close() throws IOException {
+		synchronized (this) {
+			if (this.closed)
+				return;
+			this.closed = true;
+			this.queue.add(STOP); // Under the lock, so no append can queue behind it
+		}
+		try {
+			this.writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.channel.close();
+		if (this.failure != null)
+			throw this.failure;
+	}
+
+	private void run() {
+		var batch = new ArrayList<Map.Entry<String, Translation>>(this.batchSize);
+		var running = true;
+		try {
+			this.compact();
+			while (running) {
+				var entry = this.queue.take();
+				var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.batchDelay);
+				var checkpoint = false;
+				while (entry != null) {
+					if (entry == STOP) {
+						running = false;
+						break;
+					}
+					if (entry == CHECKPOINT) {
+						checkpoint = true;
+						break;
+					}
+					batch.add(entry);
+					if (batch.size() >= this.batchSize)
+						break;
+					entry = this.queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				}
+				if (!batch.isEmpty())
+					this.commit(batch);
+				batch.clear();
+				if (checkpoint) {
+					this.threshold = -1; // Merge even a small journal
+					var merged = this.compact();
+					synchronized (this) {
+						this.merged = merged;
+						this.checkpointed += 1;
+						this.notifyAll();
+					}
+				} else {
+					this.compact();
+				}
+			}
+		} catch (IOException e) {
+			this.failure = e;
+		} catch (InterruptedException e) {
+			this.failure = new IOException("Cache journal writer was interrupted", e);
+		}
+		synchronized (this) {
+			this.notifyAll();
+		}
+	}
+
+	private void commit(List<Map.Entry<String, Translation>> batch) throws IOException {
+		var records = new ArrayList<byte[]>(batch.size());
+		var size = 0;
+		for (var entry : batch) {
+			var record = encode(entry.getKey(), entry.getValue());
+			records.add(record);
+			size += 8 + record.length;
+		}
+		var buffer = ByteBuffer.allocate(size);
+		var crc = new CRC32();
+		for (var record : records) {
+			crc.reset();
+			crc.update(record);
+			buffer.putInt(record.length).putInt((int) crc.getValue()).put(record);
+		}
+		buffer.flip();
+		while (buffer.hasRemaining())
+			this.channel.write(buffer);
+		this.channel.force(false);
+		synchronized (this) {
+			this.committed += batch.size();
+			this.notifyAll();
+		}
+	}
+
+	private boolean compact() throws IOException {
+		if (this.channel.size() <= this.threshold)
+			return true;
+		try {
+			this.merge();
+			this.threshold = this.compactionSize;
+			return true;
+		} catch (IOException e) {
+			this.channel.position(this.channel.size());
+			this.threshold = this.channel.size() + this.compactionSize;
+			return false;
+		}
+	}
+
+	private void merge() throws IOException {
+		var merged = new ArenaDictionaryTree(this.ignoreCase, Balancing.AVL, false); // Keeps the first add of a key
+		var entries = new ArrayList<Map.Entry<String, Translation>>();
+		this.channel.position(0);
+		var valid = this.read(entries);
+		this.channel.position(valid);
+		for (var i = entries.size() - 1; i >= 0; i--) // Newest record first, it wins over older ones
+			merged.add(entries.get(i).getKey(), entries.get(i).getValue());
+		var current = DictionaryFile.current(this.snapshot);
+		if (FileHelper.exists(current)) {
+			try (var file = DictionaryFile.open(current, this.comparator)) {
+				file.entries().forEach(entry -> merged.add(entry.getKey(), entry.getValue())); // Unless journaled
+			}
+		}
+		DictionaryFile.publish(this.snapshot, merged.length(), merged.entries().iterator());
+		this.channel.truncate(0);
+		this.channel.force(true);
+	}
+
+	private long read(List<Map.Entry<String, Translation>> entries) throws IOException {
+		var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(this.channel), 1 << 16));
+		var crc = new CRC32();
+		long valid = this.channel.position();
+		while (true) {
+			try {
+				var length = in.readInt();
+				var checksum = in.readInt();
+				if (length < 0 || length > MAX_RECORD)
+					break;
+				var record = new byte[length];
+				in.readFully(record);
+				crc.reset();
+				crc.update(record);
+				if ((int) crc.getValue() != checksum)
+					break;
+				entries.add(decode(record));
+				valid += 8 + length;
+			} catch (EOFException | BufferUnderflowException | IllegalArgumentException e) {
+				break;
+			}
+		}
+		return valid;
+	}
+
+	private static byte[] encode(String key, Translation translation) {
+		var parts = new byte[][] { key.getBytes(StandardCharsets.UTF_8),
+				translation.word.getBytes(StandardCharsets.UTF_8),
+				translation.definition.getBytes(StandardCharsets.UTF_8) };
+		var buffer = ByteBuffer.allocate(12 + parts[0].length + parts[1].length + parts[2].length);
+		for (var part : parts)
+			buffer.putInt(part.length).put(part);
+		return buffer.array();
+	}
+
+	private static Map.Entry<String, Translation> decode(byte[] record) {
+		var buffer = ByteBuffer.wrap(record);
+		var parts = new String[3];
+		for (var i = 0; i < parts.length; i++) {
+			var length = buffer.getInt();
+			if (length < 0 || length > buffer.remaining())
+				throw new IllegalArgumentException("Unexpected journal record length");
+			parts[i] = new String(record, buffer.position(), length, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+		}
+		return Map.entry(parts[0], new Translation(parts[1], parts[2]));
+	}
+}
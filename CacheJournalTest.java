@@ -0,0 +1,58 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public final class CacheJournalTest { // Checks that a closed CacheJournal refuses records instead of dropping them
+	private interface Action {
+		void run() throws Exception;
+	}
+
+	private final static void log(String msg) {
+		System.out.println(msg);
+	}
+
+	public final static void main(String[] args) throws Exception {
+		var directory = Files.createTempDirectory("journaltest");
+		var snapshot = directory.resolve("cache.dict").toString();
+		var filename = directory.resolve("cache.journal").toString();
+		DictionaryFile.write(snapshot, 0, Collections.emptyIterator());
+		var failures = 0;
+		var journal = CacheJournal.open(filename, snapshot, true, 64, 200, 1 << 20);
+		journal.append("before", new Translation("vorher", "Appended while open."));
+		journal.close();
+		failures += rejected("Append after close",
+				() -> journal.append("after", new Translation("nachher", "Appended after close.")));
+		failures += rejected("Checkpoint after close", journal::checkpoint);
+		journal.close(); // A second close does nothing
+		var reopened = CacheJournal.open(filename, snapshot, true, 64, 200, 1 << 20);
+		var keys = reopened.recovered().stream().map(entry -> entry.getKey()).collect(Collectors.toList());
+		reopened.close();
+		if (keys.equals(List.of("before"))) {
+			log("Reopened journal holds exactly the record appended while open");
+		} else {
+			log("Reopened journal holds " + keys + ", expected [before]");
+			failures += 1;
+		}
+		try (var files = Files.list(directory)) {
+			for (var file : (Iterable<Path>) files::iterator)
+				Files.delete(file);
+		}
+		Files.delete(directory);
+		log(failures == 0 ? "No failures" : failures + " failure(s)");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	private final static int rejected(String name, Action action) throws Exception {
+		try {
+			action.run();
+		} catch (IllegalStateException e) {
+			log(name + " is rejected: " + e.getMessage());
+			return 0;
+		}
+		log(name + " was accepted, the record is lost");
+		return 1;
+	}
+}
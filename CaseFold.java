@@ -0,0 +1,22 @@
+public final class CaseFold {
+	public static byte[] fold(String text) { // Unsigned byte order equals String.compareToIgnoreCase order
+		var folded = new byte[text.codePointCount(0, text.length()) * 3];
+		var index = 0;
+		for (var i = 0; i < text.length(); i = text.offsetByCodePoints(i, 1)) {
+			var codePoint = Character.toLowerCase(Character.toUpperCase(text.codePointAt(i)));
+			folded[index++] = (byte) (codePoint >>> 16); // Fixed width keeps code point order, as the JDK compares
+			folded[index++] = (byte) (codePoint >>> 8);
+			folded[index++] = (byte) codePoint;
+		}
+		return folded;
+	}
+
+	public static long hash(String text) { // Equal for keys that fold equal, without building the folded bytes
+		var hash = 0xcbf29ce484222325L;
+		for (var i = 0; i < text.length(); i = text.offsetByCodePoints(i, 1)) {
+			hash ^= Character.toLowerCase(Character.toUpperCase(text.codePointAt(i)));
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,57 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+public final class ConcurrentDictionaryTree<TKey, TValue> implements Iterable<TKey> {
+	private final ReentrantLock writer = new ReentrantLock();
+
+	private volatile PersistentDictionaryTree<TKey, TValue> current;
+
+	public ConcurrentDictionaryTree(Comparator<? super TKey> comparator) {
+		this.current = new PersistentDictionaryTree<TKey, TValue>(comparator);
+	}
+
+	public final void add(TKey key, TValue value) {
+		this.writer.lock();
+		try {
+			this.current = this.current.add(key, value);
+		} finally {
+			this.writer.unlock();
+		}
+	}
+
+	public final PersistentDictionaryTree<TKey, TValue> snapshot() {
+		return this.current;
+	}
+
+	public final Boolean find(TKey query) {
+		return this.current.find(query);
+	}
+
+	public final TValue get(TKey key) {
+		return this.current.get(key);
+	}
+
+	public final int length() {
+		return this.current.length();
+	}
+
+	public final int height() {
+		return this.current.height();
+	}
+
+	public final ArrayList<TKey> toInOrder() {
+		return this.current.toInOrder();
+	}
+
+	@Override
+	public final Iterator<TKey> iterator() {
+		return this.current.iterator();
+	}
+
+	public final Stream<TKey> stream() {
+		return this.current.stream();
+	}
+}
@@ -0,0 +1,327 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public final class DictionaryFile implements Closeable {
+	private final static int MAGIC = 0x44494354;
+
+	private final static int VERSION = 1;
+
+	private final static int HEADER = 12;
+
+	private final static Pattern SEPARATOR = Pattern.compile(Pattern.quote("|||"));
+
+	private final static String KEYS = ".bloom"; // Sidecar of a generation with a Bloom filter over its keys
+
+	private final static double FALSE_POSITIVES = 0.01;
+
+	private final FileChannel channel;
+
+	private final MappedByteBuffer buffer;
+
+	private final Comparator<? super String> comparator;
+
+	private final int count;
+
+	private final BloomFilter<String> keys; // null for generations written without a sidecar
+
+	private DictionaryFile(FileChannel channel, MappedByteBuffer buffer, Comparator<? super String> comparator,
+			BloomFilter<String> keys) throws IOException {
+		this.channel = channel;
+		this.buffer = buffer;
+		this.comparator = comparator;
+		this.keys = keys;
+		if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+			throw new IOException("Unexpected dictionary file header");
+		this.count = buffer.getInt(8);
+		if (HEADER + (long) this.count * 4 > buffer.capacity())
+			throw new IOException("Unexpected dictionary file length");
+	}
+
+	public static DictionaryFile open(String filename, Comparator<? super String> comparator) throws IOException {
+		var channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+		try {
+			var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new DictionaryFile(channel, buffer, comparator, keys(filename));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public static void write(String filename, DictionaryTree<String, Translation> dict) throws IOException {
+		write(filename, dict.length(), dict.entries().iterator());
+	}
+
+	public static void write(String filename, int count, Iterator<? extends Map.Entry<String, Translation>> sorted)
+			throws IOException {
+		var temporary = Paths.get(filename + ".tmp");
+		var offsets = new int[count];
+		try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			long offset = HEADER + (long) count * 4;
+			channel.position(offset);
+			var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+			for (var i = 0; i < count; i++) {
+				if (!sorted.hasNext())
+					throw new IOException("Tried to write " + count + " entries but got only " + i);
+				if (offset > Integer.MAX_VALUE)
+					throw new IOException("Tried to write a dictionary file larger than 2 GiB");
+				var entry = sorted.next();
+				offsets[i] = (int) offset;
+				offset += writeString(out, entry.getKey());
+				offset += writeString(out, entry.getValue().word);
+				offset += writeString(out, entry.getValue().definition);
+			}
+			out.flush();
+			var index = ByteBuffer.allocate(HEADER + count * 4);
+			index.putInt(MAGIC).putInt(VERSION).putInt(count);
+			index.asIntBuffer().put(offsets);
+			index.rewind();
+			while (index.hasRemaining())
+				channel.write(index, index.position());
+			channel.force(true);
+		}
+		Files.move(temporary, Paths.get(filename), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public static String current(String snapshot) throws IOException { // Newest generation, the name itself at first
+		var pointer = Paths.get(snapshot + ".current");
+		if (!Files.exists(pointer))
+			return snapshot;
+		var name = new String(Files.readAllBytes(pointer), StandardCharsets.UTF_8).trim();
+		return Paths.get(snapshot).resolveSibling(name).toString();
+	}
+
+	public static void publish(String snapshot, DictionaryTree<String, Translation> dict) throws IOException {
+		publish(snapshot, dict.length(), dict.entries().iterator());
+	}
+
+	public static void publish(String snapshot, int count, Iterator<? extends Map.Entry<String, Translation>> sorted)
+			throws IOException {
+		var path = Paths.get(snapshot); // Mapped generations are never replaced, readers switch over when they reopen
+		var current = Paths.get(current(snapshot)).getFileName().toString();
+		var name = path.getFileName() + "." + (generation(path, current) + 1);
+		var filename = path.resolveSibling(name).toString();
+		var keys = new BloomFilter<String>(count, FALSE_POSITIVES, CaseFold::hash); // Right for both key orders
+		write(filename, count, new Iterator<Map.Entry<String, Translation>>() {
+			@Override
+			public boolean hasNext() {
+				return sorted.hasNext();
+			}
+
+			@Override
+			public Map.Entry<String, Translation> next() {
+				var entry = sorted.next();
+				keys.add(entry.getKey());
+				return entry;
+			}
+		});
+		try (var channel = FileChannel.open(Paths.get(filename + KEYS), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+			keys.write(out);
+			out.flush();
+			channel.force(true);
+		}
+		var pointer = Paths.get(snapshot + ".current");
+		var temporary = Paths.get(snapshot + ".current.tmp");
+		try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			channel.write(ByteBuffer.wrap(name.getBytes(StandardCharsets.UTF_8)));
+			channel.force(true);
+		}
+		Files.move(temporary, pointer, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		prune(snapshot);
+	}
+
+	public static void prune(String snapshot) throws IOException { // Deletes older generations that aren't mapped
+		var path = Paths.get(snapshot);
+		var current = Paths.get(current(snapshot)).getFileName().toString();
+		var directory = path.toAbsolutePath().getParent();
+		try (var files = Files.newDirectoryStream(directory, path.getFileName() + "*")) {
+			for (var file : files) {
+				var name = file.getFileName().toString();
+				if (name.endsWith(KEYS))
+					name = name.substring(0, name.length() - KEYS.length()); // Goes with its generation
+				if (name.equals(current) || generation(path, name) < 0)
+					continue;
+				try {
+					Files.deleteIfExists(file);
+				} catch (IOException e) { // Still mapped on Windows, the next prune gets it
+				}
+			}
+		}
+	}
+
+	public static int importText(String textFilename, String filename, boolean ignoreCase) throws IOException {
+		var skipped = 0;
+		var dict = new ArenaDictionaryTree(ignoreCase, Balancing.AVL, false); // Keeps the first line of a key
+		if (FileHelper.exists(textFilename)) {
+			try (var reader = Files.newBufferedReader(Paths.get(textFilename), StandardCharsets.UTF_8)) {
+				for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+					if (line.isEmpty())
+						continue;
+					var parts = SEPARATOR.split(line);
+					if (parts.length != 3) {
+						skipped += 1;
+						continue;
+					}
+					dict.add(parts[0], new Translation(parts[1], parts[2]));
+				}
+			}
+		}
+		publish(filename, dict.length(), dict.entries().iterator());
+		return skipped;
+	}
+
+	public final int length() {
+		return this.count;
+	}
+
+	public final boolean mightContain(String key) { // Without a sidecar every key might be there
+		return this.keys == null || this.keys.mightContain(key);
+	}
+
+	public final Boolean find(String query) {
+		return this.search(query) >= 0;
+	}
+
+	public final Translation get(String key) {
+		var index = this.search(key);
+		return index < 0 ? null : this.value(index);
+	}
+
+	public final String key(int index) {
+		return readString(this.buffer.duplicate(), this.offset(index));
+	}
+
+	public final Translation value(int index) {
+		var buffer = this.buffer.duplicate();
+		var offset = this.offset(index);
+		offset += 4 + buffer.getInt(offset);
+		var word = readString(buffer, offset);
+		offset += 4 + buffer.getInt(offset);
+		return new Translation(word, readString(buffer, offset));
+	}
+
+	public final String ceiling(String key) {
+		var index = this.search(key);
+		index = index < 0 ? -index - 1 : index;
+		return index < this.count ? this.key(index) : null;
+	}
+
+	public final String floor(String key) {
+		var index = this.search(key);
+		index = index < 0 ? -index - 2 : index;
+		return index >= 0 ? this.key(index) : null;
+	}
+
+	public final ArrayList<Map.Entry<String, Translation>> prefix(String prefix, int limit) {
+		var list = new ArrayList<Map.Entry<String, Translation>>();
+		var index = this.search(prefix);
+		for (index = index < 0 ? -index - 1 : index; index < this.count && list.size() < limit; index++) {
+			var key = this.key(index);
+			if (key.length() < prefix.length()
+					|| this.comparator.compare(key.substring(0, prefix.length()), prefix) != 0)
+				break;
+			list.add(new AbstractMap.SimpleImmutableEntry<String, Translation>(key, this.value(index)));
+		}
+		return list;
+	}
+
+	public final Stream<Map.Entry<String, Translation>> entries() {
+		return IntStream.range(0, this.count).mapToObj(
+				index -> new AbstractMap.SimpleImmutableEntry<String, Translation>(this.key(index), this.value(index)));
+	}
+
+	@Override
+	public final void close() throws IOException {
+		this.channel.close();
+	}
+
+	private static BloomFilter<String> keys(String filename) throws IOException { // Mapped, so opening stays O(1)
+		var path = Paths.get(filename + KEYS);
+		if (!Files.exists(path))
+			return null;
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return BloomFilter.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), CaseFold::hash);
+		}
+	}
+
+	private int search(String key) {
+		var buffer = this.buffer.duplicate();
+		var low = 0;
+		var high = this.count - 1;
+		while (low <= high) {
+			var middle = (low + high) >>> 1;
+			var res = this.comparator.compare(key, readString(buffer, this.offset(middle)));
+			if (res == 0)
+				return middle;
+			if (res < 0) {
+				high = middle - 1;
+			} else {
+				low = middle + 1;
+			}
+		}
+		return -(low + 1);
+	}
+
+	private int offset(int index) {
+		if (index < 0 || index >= this.count)
+			throw new IndexOutOfBoundsException("Tried to read entry " + index + " of " + this.count);
+		return this.buffer.getInt(HEADER + index * 4);
+	}
+
+	private static long generation(Path snapshot, String name) { // 0 for the snapshot name, -1 for other files
+		var base = snapshot.getFileName().toString();
+		if (name.equals(base))
+			return 0;
+		if (!name.startsWith(base + ".") || name.length() == base.length() + 1)
+			return -1;
+		for (var i = base.length() + 1; i < name.length(); i++) {
+			if (name.charAt(i) < '0' || name.charAt(i) > '9')
+				return -1;
+		}
+		try {
+			return Long.parseLong(name.substring(base.length() + 1));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static int writeString(DataOutputStream out, String value) throws IOException {
+		var bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		return 4 + bytes.length;
+	}
+
+	private static String readString(ByteBuffer buffer, int offset) {
+		var length = buffer.getInt(offset);
+		var bytes = new byte[length];
+		buffer.position(offset + 4);
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
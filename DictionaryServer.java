@@ -0,0 +1,204 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public final class DictionaryServer { // Serves the loaded dictionary over HTTP, connections are kept alive
+	static { // Read once when the first HttpServer is created, otherwise Nagle delays every small response by ~40 ms
+		if (System.getProperty("sun.net.httpserver.nodelay") == null)
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+	}
+
+	private final HttpServer server;
+
+	private final ExecutorService executor = ThreadHelper.executor("dictionary-server");
+
+	private final Function<String, Translation> lookup; // Called from many threads at once
+
+	private final LongAdder requests = new LongAdder();
+
+	private final LongAdder lookups = new LongAdder();
+
+	private final LongAdder errors = new LongAdder(); // Requests that failed with a RuntimeException
+
+	public DictionaryServer(int port, Function<String, Translation> lookup) throws IOException {
+		this.lookup = lookup;
+		this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+		this.server.createContext("/lookup", exchange -> this.handle(exchange, this::lookup));
+		this.server.createContext("/translate", exchange -> this.handle(exchange, this::translate));
+		this.server.setExecutor(this.executor);
+	}
+
+	public final DictionaryServer start() {
+		this.server.start();
+		return this;
+	}
+
+	public final void stop() {
+		this.server.stop(0);
+		this.executor.shutdown();
+	}
+
+	public final int port() {
+		return this.server.getAddress().getPort();
+	}
+
+	public final String url() {
+		return "http://localhost:" + this.port();
+	}
+
+	public final long requests() {
+		return this.requests.sum();
+	}
+
+	public final long lookups() {
+		return this.lookups.sum();
+	}
+
+	public final long errors() {
+		return this.errors.sum();
+	}
+
+	private interface Handler {
+		void respond(HttpExchange exchange) throws IOException;
+	}
+
+	private void handle(HttpExchange exchange, Handler handler) throws IOException {
+		var failed = false;
+		try {
+			this.requests.increment();
+			handler.respond(exchange);
+		} catch (IOException e) { // Malformed body, the client gets whatever was sent so far or a 400
+			if (exchange.getResponseCode() == -1)
+				this.send(exchange, 400, this.error(e));
+		} catch (RuntimeException e) { // A failing lookup, the server keeps answering other requests
+			this.failed(exchange, e);
+			failed = exchange.getResponseCode() != -1;
+			if (failed)
+				throw e; // Too late for a 500, the server drops the connection so the body doesn't look complete
+			this.send(exchange, 500, this.error(e));
+		} finally {
+			if (!failed)
+				exchange.close(); // Drains the rest of the request so the connection can serve the next one
+		}
+	}
+
+	private void lookup(HttpExchange exchange) throws IOException {
+		switch (exchange.getRequestMethod()) {
+			case "GET":
+				var word = this.parameter(exchange, "word");
+				if (word == null) {
+					this.send(exchange, 400, "{\"error\":\"Missing word parameter\"}");
+					return;
+				}
+				var translation = this.find(word);
+				this.send(exchange, translation != null ? 200 : 404, this.entry(word, translation));
+				break;
+			case "POST":
+				this.batch(exchange);
+				break;
+			default:
+				this.send(exchange, 405, "{\"error\":\"Use GET or POST\"}");
+		}
+	}
+
+	private void batch(HttpExchange exchange) throws IOException { // Answers each word while the rest still arrives
+		var json = new JsonReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+		json.beginArray();
+		if (json.hasNext() && json.peek() != JsonReader.Token.STRING) // Still early enough for a 400
+			throw new IOException("Expected a word but found " + json.peek());
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(200, 0);
+		try (var out = this.writer(exchange)) {
+			out.write('[');
+			var first = true;
+			try {
+				for (; json.hasNext(); first = false) {
+					if (json.peek() != JsonReader.Token.STRING)
+						throw new IOException("Expected a word but found " + json.peek());
+					var word = json.nextString();
+					out.write((first ? "" : ",") + this.entry(word, this.find(word)));
+				}
+				json.endArray();
+				json.peek(); // Rejects anything after the array
+			} catch (IOException e) { // The status is already sent, so the error object ends the array instead
+				out.write((first ? "" : ",") + this.error(e));
+			} catch (RuntimeException e) {
+				this.failed(exchange, e);
+				out.write((first ? "" : ",") + this.error(e));
+			}
+			out.write(']');
+		}
+	}
+
+	private void translate(HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestMethod().equals("POST")) {
+			this.send(exchange, 405, "{\"error\":\"Use POST with the text as body\"}");
+			return;
+		}
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(200, 0);
+		try (var in = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+			var out = this.writer(exchange); // Not closed on failure, plain text has no way to mark itself incomplete
+			new Translator(this::find, Translator.Rules.FOLDED).translate(in, out);
+			out.close();
+		}
+	}
+
+	private Translation find(String word) {
+		this.lookups.increment();
+		return this.lookup.apply(word);
+	}
+
+	private String entry(String word, Translation translation) {
+		if (translation == null)
+			return "{\"word\":" + Main.quote(word) + ",\"translation\":null,\"definition\":null}";
+		return "{\"word\":" + Main.quote(word) + ",\"translation\":" + Main.quote(translation.word)
+				+ ",\"definition\":" + Main.quote(translation.definition) + "}";
+	}
+
+	private void failed(HttpExchange exchange, RuntimeException e) {
+		this.errors.increment();
+		var trace = new StringWriter();
+		e.printStackTrace(new PrintWriter(trace));
+		System.err.print("Couldn't answer " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": "
+				+ trace);
+	}
+
+	private String error(Exception e) {
+		return "{\"error\":" + Main.quote(String.valueOf(e.getMessage())) + "}";
+	}
+
+	private String parameter(HttpExchange exchange, String name) {
+		var query = exchange.getRequestURI().getRawQuery();
+		if (query == null)
+			return null;
+		for (var pair : query.split("&")) {
+			if (pair.startsWith(name + "="))
+				return URLDecoder.decode(pair.substring(name.length() + 1), StandardCharsets.UTF_8);
+		}
+		return null;
+	}
+
+	private Writer writer(HttpExchange exchange) {
+		return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+	}
+
+	private void send(HttpExchange exchange, int status, String body) throws IOException {
+		var bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		exchange.getResponseBody().write(bytes);
+	}
+}
@@ -0,0 +1,64 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+public final class DictionaryServerTest { // Checks that a lookup throwing a RuntimeException gets a 500, not silence
+	private final static void log(String msg) {
+		System.out.println(msg);
+	}
+
+	public final static void main(String[] args) throws Exception {
+		var server = new DictionaryServer(0, word -> {
+			if (word.equals("boom"))
+				throw new IllegalStateException("Lookup of boom failed");
+			return new Translation(word.toUpperCase(), "Looked up " + word + ".");
+		}).start();
+		var client = HttpClient.newHttpClient();
+		var failures = 0;
+		try {
+			failures += expect(client, HttpRequest.newBuilder(URI.create(server.url() + "/lookup?word=boom")).build(),
+					500, "{\"error\":\"Lookup of boom failed\"}");
+			failures += expect(client, HttpRequest.newBuilder(URI.create(server.url() + "/lookup"))
+					.POST(HttpRequest.BodyPublishers.ofString("[\"house\",\"boom\"]")).build(), 200,
+					"[{\"word\":\"house\",\"translation\":\"HOUSE\",\"definition\":\"Looked up house.\"},"
+							+ "{\"error\":\"Lookup of boom failed\"}]");
+			failures += expect(client, HttpRequest.newBuilder(URI.create(server.url() + "/translate"))
+					.POST(HttpRequest.BodyPublishers.ofString("house boom")).build(), -1, null);
+			failures += expect(client, HttpRequest.newBuilder(URI.create(server.url() + "/lookup?word=house")).build(),
+					200, "{\"word\":\"house\",\"translation\":\"HOUSE\",\"definition\":\"Looked up house.\"}");
+			if (server.errors() != 3) {
+				log("Server counted " + server.errors() + " failed request(s), expected 3");
+				failures += 1;
+			}
+		} finally {
+			server.stop();
+		}
+		log(failures == 0 ? "No failures" : failures + " failure(s)");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	private final static int expect(HttpClient client, HttpRequest request, int status, String body)
+			throws InterruptedException { // A status of -1 expects the connection to drop before the body ends
+		var name = request.method() + " " + request.uri().getPath()
+				+ (request.uri().getQuery() != null ? "?" + request.uri().getQuery() : "");
+		try {
+			var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+			if (response.statusCode() == status && response.body().equals(body)) {
+				log(name + " answers " + status + " " + body);
+				return 0;
+			}
+			log(name + " answered " + response.statusCode() + " " + response.body() + ", expected "
+					+ (status == -1 ? "a dropped connection" : status + " " + body));
+		} catch (IOException e) {
+			if (status == -1) {
+				log(name + " drops the connection after streaming started: " + e);
+				return 0;
+			}
+			log(name + " failed: " + e);
+		}
+		return 1;
+	}
+}
@@ -1,48 +1,533 @@
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class DictionaryTree<TKey, TValue> {
-	private Item<TKey, TValue> first = new End<TKey, TValue>();
+public class DictionaryTree<TKey, TValue> implements Iterable<TKey> {
+	private final Item<TKey, TValue> end = new End<TKey, TValue>();
+
+	private Item<TKey, TValue> first = this.end;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Item<TKey, TValue>[] path = new Item[32];
 
 	private final Comparator<? super TKey> comparator;
 
+	private final Function<? super TKey, byte[]> normalizer; // Folds keys once, must sort like the comparator
+
+	private final Balancing balancing;
+
+	private Metrics.Tree metrics = null; // Opt-in, see instrument()
+
 	private final Node createNode(TKey key, TValue value) {
 		var node = new Node();
 		node.setKey(key);
 		node.setValue(value);
+		if (this.normalizer != null) {
+			var normalized = this.normalizer.apply(key);
+			node.setNormalized(normalized);
+			node.setPrefix(prefix(normalized));
+		}
+		node.setNextLeft(this.end);
+		node.setNextRight(this.end);
+		node.setHeight(1);
+		node.setSize(1);
 		return node;
 	}
 
 	public DictionaryTree(Comparator<? super TKey> comparator) {
+		this(comparator, Balancing.NONE);
+	}
+
+	public DictionaryTree(Comparator<? super TKey> comparator, Balancing balancing) {
+		this(comparator, null, balancing);
+	}
+
+	public DictionaryTree(Comparator<? super TKey> comparator, Function<? super TKey, byte[]> normalizer,
+			Balancing balancing) {
 		this.comparator = comparator;
+		this.normalizer = normalizer;
+		this.balancing = balancing;
 	}
 
 	public final void add(TKey key, TValue value) {
-		this.first = this.first.add(createNode(key, value));
+		var depth = 0;
+		var normalized = this.normalize(key);
+		var prefix = prefix(normalized);
+		var left = false;
+		var item = this.first;
+		while (!item.isEnd()) {
+			var res = this.compare(key, normalized, prefix, item);
+			if (res == 0)
+				return;
+			if (depth == this.path.length)
+				this.path = Arrays.copyOf(this.path, depth * 2);
+			this.path[depth++] = item;
+			left = res < 0;
+			item = left ? item.getNextLeft() : item.getNextRight();
+		}
+		var node = createNode(key, value);
+		if (depth == 0) {
+			this.first = node;
+			return;
+		}
+		if (left) {
+			this.path[depth - 1].setNextLeft(node);
+		} else {
+			this.path[depth - 1].setNextRight(node);
+		}
+		this.retrace(depth);
+	}
+
+	public final TValue remove(TKey key) {
+		var depth = 0;
+		var normalized = this.normalize(key);
+		var prefix = prefix(normalized);
+		var item = this.first;
+		while (!item.isEnd()) {
+			var res = this.compare(key, normalized, prefix, item);
+			if (res == 0)
+				break;
+			if (depth == this.path.length)
+				this.path = Arrays.copyOf(this.path, depth * 2);
+			this.path[depth++] = item;
+			item = res < 0 ? item.getNextLeft() : item.getNextRight();
+		}
+		if (item.isEnd()) {
+			Arrays.fill(this.path, 0, depth, null);
+			return null;
+		}
+		var value = item.getValue();
+		if (!item.getNextLeft().isEnd() && !item.getNextRight().isEnd()) { // Take over the successor, unlink that
+			var successor = item;
+			var next = item.getNextRight();
+			while (!next.isEnd()) {
+				if (depth == this.path.length)
+					this.path = Arrays.copyOf(this.path, depth * 2);
+				this.path[depth++] = successor;
+				successor = next;
+				next = next.getNextLeft();
+			}
+			item.setKey(successor.getKey());
+			item.setValue(successor.getValue());
+			item.setNormalized(successor.getNormalized());
+			item.setPrefix(successor.getPrefix());
+			item = successor;
+		}
+		var child = item.getNextLeft().isEnd() ? item.getNextRight() : item.getNextLeft();
+		if (depth == 0) {
+			this.first = child;
+		} else if (this.path[depth - 1].getNextLeft() == item) {
+			this.path[depth - 1].setNextLeft(child);
+		} else {
+			this.path[depth - 1].setNextRight(child);
+		}
+		this.retrace(depth);
+		return value;
+	}
+
+	public final void addAll(Stream<? extends Map.Entry<? extends TKey, ? extends TValue>> entries) {
+		this.addAll(entries, Duplicates.KEEP_FIRST);
+	}
+
+	public final void addAll(Stream<? extends Map.Entry<? extends TKey, ? extends TValue>> entries,
+			Duplicates duplicates) {
+		var added = new ArrayList<Map.Entry<? extends TKey, ? extends TValue>>();
+		var sorted = true;
+		for (var iterator = entries.iterator(); iterator.hasNext();) {
+			var entry = iterator.next();
+			if (sorted && !added.isEmpty()
+					&& comparator.compare(added.get(added.size() - 1).getKey(), entry.getKey()) > 0)
+				sorted = false;
+			added.add(entry);
+		}
+		if (!sorted)
+			added.sort((a, b) -> comparator.compare(a.getKey(), b.getKey()));
+		var existing = new Walker<Item<TKey, TValue>>(this.first, Traversal.IN_ORDER, item -> item);
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Item<TKey, TValue>[] items = new Item[this.length() + added.size()];
+		var count = 0;
+		Item<TKey, TValue> current = existing.hasNext() ? existing.next() : null;
+		for (var i = 0; i < added.size();) {
+			var key = added.get(i).getKey();
+			var last = i;
+			while (last + 1 < added.size() && comparator.compare(key, added.get(last + 1).getKey()) == 0)
+				last += 1;
+			while (current != null && comparator.compare(current.getKey(), key) < 0) {
+				items[count++] = current;
+				current = existing.hasNext() ? existing.next() : null;
+			}
+			var present = current != null && comparator.compare(current.getKey(), key) == 0;
+			if (duplicates == Duplicates.REJECT && (present || last > i))
+				throw new IllegalArgumentException("Tried to add duplicate key " + key);
+			if (!present) {
+				var entry = added.get(duplicates == Duplicates.KEEP_LAST ? last : i);
+				items[count++] = createNode(entry.getKey(), entry.getValue());
+			} else if (duplicates == Duplicates.KEEP_LAST) {
+				current.setValue(added.get(last).getValue());
+			}
+			i = last + 1;
+		}
+		for (; current != null; current = existing.hasNext() ? existing.next() : null)
+			items[count++] = current;
+		this.first = this.build(items, 0, count);
 	}
 
 	public final Boolean find(TKey query) {
-		return this.first.find(query);
+		return !this.lookup(query).isEnd();
 	}
 
 	public final TValue get(TKey key) {
-		return this.first.get(key);
+		var item = this.lookup(key);
+		return item.isEnd() ? null : item.getValue();
+	}
+
+	public final int height() {
+		return this.first.getHeight();
+	}
+
+	public final Metrics.Tree instrument() { // Starts counting comparisons per lookup of this tree
+		if (this.metrics == null)
+			this.metrics = new Metrics.Tree(this::height);
+		return this.metrics;
+	}
+
+	private final byte[] normalize(TKey key) {
+		return this.normalizer != null ? this.normalizer.apply(key) : null;
+	}
+
+	private final static long prefix(byte[] normalized) { // First 8 bytes, zero padded, decide most comparisons
+		var prefix = 0L;
+		if (normalized == null)
+			return prefix;
+		for (var i = 0; i < 8; i++)
+			prefix = (prefix << 8) | (i < normalized.length ? normalized[i] & 0xFF : 0);
+		return prefix;
+	}
+
+	private final int compare(TKey key, byte[] normalized, long prefix, Item<TKey, TValue> item) {
+		if (normalized == null)
+			return comparator.compare(key, item.getKey());
+		var res = Long.compareUnsigned(prefix, item.getPrefix());
+		return res != 0 ? res : Arrays.compareUnsigned(normalized, item.getNormalized());
+	}
+
+	private final Item<TKey, TValue> lookup(TKey key) {
+		var normalized = this.normalize(key);
+		var prefix = prefix(normalized);
+		var comparisons = 0;
+		var item = this.first;
+		while (!item.isEnd()) {
+			var res = this.compare(key, normalized, prefix, item);
+			comparisons += 1;
+			if (res == 0)
+				break;
+			item = res < 0 ? item.getNextLeft() : item.getNextRight();
+		}
+		if (this.metrics != null)
+			this.metrics.lookup(comparisons);
+		return item;
+	}
+
+	private final void retrace(int depth) { // Rebalance the recorded path bottom-up after an insertion or removal
+		while (depth > 0) {
+			var item = this.path[--depth];
+			this.path[depth] = null;
+			var balanced = this.balance(item);
+			if (balanced == item)
+				continue;
+			if (depth == 0) {
+				this.first = balanced;
+			} else if (this.path[depth - 1].getNextLeft() == item) {
+				this.path[depth - 1].setNextLeft(balanced);
+			} else {
+				this.path[depth - 1].setNextRight(balanced);
+			}
+		}
+	}
+
+	private final Item<TKey, TValue> build(Item<TKey, TValue>[] items, int from, int to) {
+		if (from >= to)
+			return this.end;
+		var middle = (from + to) >>> 1;
+		var item = items[middle];
+		item.setNextLeft(this.build(items, from, middle));
+		item.setNextRight(this.build(items, middle + 1, to));
+		this.update(item);
+		return item;
+	}
+
+	private final void update(Item<TKey, TValue> item) {
+		item.setHeight(Math.max(item.getNextLeft().getHeight(), item.getNextRight().getHeight()) + 1);
+		item.setSize(item.getNextLeft().getSize() + item.getNextRight().getSize() + 1);
+	}
+
+	private final Item<TKey, TValue> rotateLeft(Item<TKey, TValue> item) {
+		var pivot = item.getNextRight();
+		item.setNextRight(pivot.getNextLeft());
+		pivot.setNextLeft(item);
+		this.update(item);
+		this.update(pivot);
+		return pivot;
+	}
+
+	private final Item<TKey, TValue> rotateRight(Item<TKey, TValue> item) {
+		var pivot = item.getNextLeft();
+		item.setNextLeft(pivot.getNextRight());
+		pivot.setNextRight(item);
+		this.update(item);
+		this.update(pivot);
+		return pivot;
+	}
+
+	private final Item<TKey, TValue> balance(Item<TKey, TValue> item) {
+		this.update(item);
+		if (this.balancing != Balancing.AVL)
+			return item;
+		var factor = item.getNextLeft().getHeight() - item.getNextRight().getHeight();
+		if (factor > 1) {
+			var left = item.getNextLeft();
+			if (left.getNextLeft().getHeight() < left.getNextRight().getHeight())
+				item.setNextLeft(this.rotateLeft(left));
+			return this.rotateRight(item);
+		} else if (factor < -1) {
+			var right = item.getNextRight();
+			if (right.getNextRight().getHeight() < right.getNextLeft().getHeight())
+				item.setNextRight(this.rotateRight(right));
+			return this.rotateLeft(item);
+		}
+		return item;
 	}
 
 	public final int length() {
-		return this.first.length();
+		return this.first.getSize();
+	}
+
+	public final FrozenDictionaryTree<TKey, TValue> freeze() {
+		var keys = new Object[this.length()];
+		var values = new Object[this.length()];
+		var walker = new Walker<Item<TKey, TValue>>(this.first, Traversal.IN_ORDER, item -> item);
+		for (var i = 0; walker.hasNext(); i++) {
+			var item = walker.next();
+			keys[i] = item.getKey();
+			values[i] = item.getValue();
+		}
+		return new FrozenDictionaryTree<TKey, TValue>(this.comparator, keys, values);
+	}
+
+	public final int rank(TKey key) {
+		var normalized = this.normalize(key);
+		var prefix = prefix(normalized);
+		var rank = 0;
+		var item = this.first;
+		while (!item.isEnd()) {
+			var res = this.compare(key, normalized, prefix, item);
+			if (res == 0)
+				return rank + item.getNextLeft().getSize();
+			if (res < 0) {
+				item = item.getNextLeft();
+			} else {
+				rank += item.getNextLeft().getSize() + 1;
+				item = item.getNextRight();
+			}
+		}
+		return rank;
+	}
+
+	public final TKey select(int index) {
+		return this.locate(index).getKey();
+	}
+
+	public final TKey median() {
+		return this.length() == 0 ? null : this.select((this.length() - 1) / 2);
+	}
+
+	public final ArrayList<Map.Entry<TKey, TValue>> entriesFrom(int index, int count) {
+		var list = new ArrayList<Map.Entry<TKey, TValue>>();
+		if (index < 0 || index >= this.length())
+			return list;
+		var cursor = new Cursor(null, false, false);
+		cursor.seek(index);
+		while (cursor.hasNext() && list.size() < count)
+			list.add(entry(cursor.next()));
+		return list;
+	}
+
+	public final TKey floor(TKey key) {
+		var normalized = this.normalize(key);
+		var prefix = prefix(normalized);
+		TKey floor = null;
+		var item = this.first;
+		while (!item.isEnd()) {
+			var res = this.compare(key, normalized, prefix, item);
+			if (res == 0)
+				return item.getKey();
+			if (res < 0) {
+				item = item.getNextLeft();
+			} else {
+				floor = item.getKey();
+				item = item.getNextRight();
+			}
+		}
+		return floor;
+	}
+
+	public final TKey ceiling(TKey key) {
+		var normalized = this.normalize(key);
+		var prefix = prefix(normalized);
+		TKey ceiling = null;
+		var item = this.first;
+		while (!item.isEnd()) {
+			var res = this.compare(key, normalized, prefix, item);
+			if (res == 0)
+				return item.getKey();
+			if (res > 0) {
+				item = item.getNextRight();
+			} else {
+				ceiling = item.getKey();
+				item = item.getNextLeft();
+			}
+		}
+		return ceiling;
+	}
+
+	public final Range headMap(TKey to) {
+		return this.headMap(to, false);
+	}
+
+	public final Range headMap(TKey to, boolean inclusive) {
+		return new Range(null, false, false, to, inclusive, true);
+	}
+
+	public final Range tailMap(TKey from) {
+		return this.tailMap(from, true);
+	}
+
+	public final Range tailMap(TKey from, boolean inclusive) {
+		return new Range(from, inclusive, true, null, false, false);
+	}
+
+	public final Range subMap(TKey from, TKey to) {
+		return this.subMap(from, true, to, false);
+	}
+
+	public final Range subMap(TKey from, boolean fromInclusive, TKey to, boolean toInclusive) {
+		return new Range(from, fromInclusive, true, to, toInclusive, true);
+	}
+
+	public final static <TValue> ArrayList<Map.Entry<String, TValue>> prefix(DictionaryTree<String, TValue> tree,
+			String prefix, int limit) { // Only String keys have prefixes, compared through the tree's comparator
+		var list = new ArrayList<Map.Entry<String, TValue>>();
+		var cursor = tree.new Cursor(null, false, false);
+		cursor.seek(prefix, true);
+		while (cursor.hasNext() && list.size() < limit) {
+			var item = cursor.next();
+			var key = item.getKey();
+			if (key.length() < prefix.length()
+					|| tree.comparator.compare(key.substring(0, prefix.length()), prefix) != 0)
+				break;
+			list.add(tree.entry(item));
+		}
+		return list;
+	}
+
+	private final int count(TKey key, boolean inclusive) {
+		var normalized = this.normalize(key);
+		var prefix = prefix(normalized);
+		var count = 0;
+		var item = this.first;
+		while (!item.isEnd()) {
+			var res = this.compare(key, normalized, prefix, item);
+			if (res < 0 || (res == 0 && !inclusive)) {
+				item = item.getNextLeft();
+			} else {
+				count += item.getNextLeft().getSize() + 1;
+				item = item.getNextRight();
+			}
+		}
+		return count;
+	}
+
+	private final Map.Entry<TKey, TValue> entry(Item<TKey, TValue> item) {
+		return new AbstractMap.SimpleImmutableEntry<TKey, TValue>(item.getKey(), item.getValue());
+	}
+
+	private final Item<TKey, TValue> locate(int index) {
+		if (index < 0 || index >= this.length())
+			throw new IndexOutOfBoundsException("Tried to select index " + index + " of " + this.length());
+		var item = this.first;
+		while (true) {
+			var left = item.getNextLeft().getSize();
+			if (index < left) {
+				item = item.getNextLeft();
+			} else if (index > left) {
+				index -= left + 1;
+				item = item.getNextRight();
+			} else {
+				return item;
+			}
+		}
 	}
 
 	public final ArrayList<TKey> toPreOrder() {
-		return this.first.toPreOrder();
+		return this.toList(Traversal.PRE_ORDER);
 	}
 
 	public final ArrayList<TKey> toInOrder() {
-		return this.first.toInOrder();
+		return this.toList(Traversal.IN_ORDER);
 	}
 
 	public final ArrayList<TKey> toPostOrder() {
-		return this.first.toPostOrder();
+		return this.toList(Traversal.POST_ORDER);
+	}
+
+	@Override
+	public final Iterator<TKey> iterator() {
+		return this.iterator(Traversal.IN_ORDER);
+	}
+
+	public final Iterator<TKey> iterator(Traversal order) {
+		return new Walker<TKey>(this.first, order, Item::getKey);
+	}
+
+	@Override
+	public final Spliterator<TKey> spliterator() {
+		return this.spliterator(Traversal.IN_ORDER);
+	}
+
+	public final Spliterator<TKey> spliterator(Traversal order) {
+		return new Walker<TKey>(this.first, order, Item::getKey);
+	}
+
+	public final Stream<TKey> stream() {
+		return this.stream(Traversal.IN_ORDER);
+	}
+
+	public final Stream<TKey> stream(Traversal order) {
+		return StreamSupport.stream(this.spliterator(order), false);
+	}
+
+	public final Stream<Map.Entry<TKey, TValue>> entries() {
+		return StreamSupport.stream(new Walker<Map.Entry<TKey, TValue>>(this.first, Traversal.IN_ORDER, this::entry),
+				false);
+	}
+
+	private final ArrayList<TKey> toList(Traversal order) {
+		var list = new ArrayList<TKey>(this.length());
+		var walker = new Walker<TKey>(this.first, order, Item::getKey);
+		while (walker.hasNext())
+			list.add(walker.next());
+		return list;
 	}
 
 	private interface Item<TKey, TValue> {
@@ -62,19 +547,23 @@ public class DictionaryTree<TKey, TValue> {
 
 		public void setNextRight(Item<TKey, TValue> next);
 
-		public Item<TKey, TValue> add(Item<TKey, TValue> node);
+		public int getHeight();
+
+		public void setHeight(int height);
 
-		public Boolean find(TKey query);
+		public int getSize();
 
-		public TValue get(TKey key);
+		public void setSize(int size);
 
-		public int length();
+		public byte[] getNormalized();
 
-		public ArrayList<TKey> toPreOrder();
+		public void setNormalized(byte[] normalized);
 
-		public ArrayList<TKey> toInOrder();
+		public long getPrefix();
 
-		public ArrayList<TKey> toPostOrder();
+		public void setPrefix(long prefix);
+
+		public boolean isEnd();
 	}
 
 	private final class Node implements Item<TKey, TValue> {
@@ -82,6 +571,10 @@ public class DictionaryTree<TKey, TValue> {
 		private TValue value = null;
 		private Item<TKey, TValue> nextLeft = null;
 		private Item<TKey, TValue> nextRight = null;
+		private int height = 0;
+		private int size = 0;
+		private byte[] normalized = null;
+		private long prefix = 0;
 
 		@Override
 		public TKey getKey() {
@@ -124,66 +617,344 @@ public class DictionaryTree<TKey, TValue> {
 		}
 
 		@Override
-		public Item<TKey, TValue> add(Item<TKey, TValue> node) {
-			var res = comparator.compare(node.getKey(), this.getKey());
-			if (res < 0) {
-				this.setNextLeft(this.getNextLeft().add(node));
-			} else if (res > 0) {
-				this.setNextRight(this.getNextRight().add(node));
-			}
-			return this;
+		public int getHeight() {
+			return this.height;
 		}
 
 		@Override
-		public Boolean find(TKey query) {
-			var res = comparator.compare(query, this.getKey());
-			if (res < 0) {
-				return this.getNextLeft().find(query);
-			} else if (res > 0) {
-				return this.getNextRight().find(query);
+		public void setHeight(int height) {
+			this.height = height;
+		}
+
+		@Override
+		public int getSize() {
+			return this.size;
+		}
+
+		@Override
+		public void setSize(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public byte[] getNormalized() {
+			return this.normalized;
+		}
+
+		@Override
+		public void setNormalized(byte[] normalized) {
+			this.normalized = normalized;
+		}
+
+		@Override
+		public long getPrefix() {
+			return this.prefix;
+		}
+
+		@Override
+		public void setPrefix(long prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public boolean isEnd() {
+			return false;
+		}
+	}
+
+	public enum Duplicates {
+		KEEP_FIRST, KEEP_LAST, REJECT
+	}
+
+	public final class Range implements Iterable<TKey> {
+		private final TKey from;
+		private final boolean fromInclusive;
+		private final boolean fromBounded;
+		private final TKey to;
+		private final boolean toInclusive;
+		private final boolean toBounded;
+
+		private Range(TKey from, boolean fromInclusive, boolean fromBounded, TKey to, boolean toInclusive,
+				boolean toBounded) {
+			this.from = from;
+			this.fromInclusive = fromInclusive;
+			this.fromBounded = fromBounded;
+			this.to = to;
+			this.toInclusive = toInclusive;
+			this.toBounded = toBounded;
+		}
+
+		public final boolean contains(TKey key) {
+			if (this.fromBounded) {
+				var res = comparator.compare(key, this.from);
+				if (res < 0 || (res == 0 && !this.fromInclusive))
+					return false;
+			}
+			if (this.toBounded) {
+				var res = comparator.compare(key, this.to);
+				if (res > 0 || (res == 0 && !this.toInclusive))
+					return false;
 			}
 			return true;
 		}
 
+		public final Boolean find(TKey query) {
+			return this.contains(query) && DictionaryTree.this.find(query);
+		}
+
+		public final TValue get(TKey key) {
+			return this.contains(key) ? DictionaryTree.this.get(key) : null;
+		}
+
+		public final int length() {
+			var to = this.toBounded ? count(this.to, this.toInclusive) : DictionaryTree.this.length();
+			var from = this.fromBounded ? count(this.from, !this.fromInclusive) : 0;
+			return Math.max(0, to - from);
+		}
+
+		public final ArrayList<TKey> toInOrder() {
+			var list = new ArrayList<TKey>(this.length());
+			for (TKey key : this)
+				list.add(key);
+			return list;
+		}
+
 		@Override
-		public TValue get(TKey key) {
-			var res = comparator.compare(key, this.getKey());
-			if (res < 0) {
-				return this.getNextLeft().get(key);
-			} else if (res > 0) {
-				return this.getNextRight().get(key);
+		public final Iterator<TKey> iterator() {
+			var cursor = this.cursor();
+			return new Iterator<TKey>() {
+				@Override
+				public boolean hasNext() {
+					return cursor.hasNext();
+				}
+
+				@Override
+				public TKey next() {
+					return cursor.next().getKey();
+				}
+			};
+		}
+
+		public final Stream<TKey> stream() {
+			return StreamSupport.stream(Spliterators.spliterator(this.iterator(), this.length(),
+					Spliterator.ORDERED | Spliterator.DISTINCT), false);
+		}
+
+		public final Stream<Map.Entry<TKey, TValue>> entries() {
+			var cursor = this.cursor();
+			return StreamSupport.stream(Spliterators.spliterator(new Iterator<Map.Entry<TKey, TValue>>() {
+				@Override
+				public boolean hasNext() {
+					return cursor.hasNext();
+				}
+
+				@Override
+				public Map.Entry<TKey, TValue> next() {
+					return entry(cursor.next());
+				}
+			}, this.length(), Spliterator.ORDERED | Spliterator.DISTINCT), false);
+		}
+
+		private Cursor cursor() {
+			var cursor = new Cursor(this.to, this.toInclusive, this.toBounded);
+			if (this.fromBounded) {
+				cursor.seek(this.from, this.fromInclusive);
+			} else {
+				cursor.seek(0);
+			}
+			return cursor;
+		}
+	}
+
+	private final class Cursor implements Iterator<Item<TKey, TValue>> {
+		private final ArrayDeque<Item<TKey, TValue>> stack = new ArrayDeque<Item<TKey, TValue>>();
+		private final TKey to;
+		private final boolean toInclusive;
+		private final boolean toBounded;
+
+		private Cursor(TKey to, boolean toInclusive, boolean toBounded) {
+			this.to = to;
+			this.toInclusive = toInclusive;
+			this.toBounded = toBounded;
+		}
+
+		private void seek(TKey from, boolean inclusive) {
+			var item = first;
+			while (!item.isEnd()) {
+				var res = comparator.compare(from, item.getKey());
+				if (res < 0 || (res == 0 && inclusive)) {
+					this.stack.push(item);
+					item = item.getNextLeft();
+				} else {
+					item = item.getNextRight();
+				}
+			}
+		}
+
+		private void seek(int index) {
+			var item = first;
+			while (!item.isEnd()) {
+				var left = item.getNextLeft().getSize();
+				if (index <= left) {
+					this.stack.push(item);
+					if (index == left)
+						break;
+					item = item.getNextLeft();
+				} else {
+					index -= left + 1;
+					item = item.getNextRight();
+				}
 			}
-			return this.getValue();
 		}
 
 		@Override
-		public int length() {
-			return this.getNextLeft().length() + this.getNextRight().length() + 1;
+		public boolean hasNext() {
+			if (this.stack.isEmpty())
+				return false;
+			if (!this.toBounded)
+				return true;
+			var res = comparator.compare(this.stack.peek().getKey(), this.to);
+			return res < 0 || (res == 0 && this.toInclusive);
 		}
 
 		@Override
-		public ArrayList<TKey> toPreOrder() {
-			var list = new ArrayList<TKey>();
-			list.add(this.getKey());
-			list.addAll(this.getNextLeft().toPreOrder());
-			list.addAll(this.getNextRight().toPreOrder());
-			return list;
+		public Item<TKey, TValue> next() {
+			if (!this.hasNext())
+				throw new NoSuchElementException("Tried to iterate past the last item");
+			var item = this.stack.pop();
+			for (var next = item.getNextRight(); !next.isEnd(); next = next.getNextLeft())
+				this.stack.push(next);
+			return item;
+		}
+	}
+
+	private final class Walker<R> implements Iterator<R>, Spliterator<R> {
+		private Item<TKey, TValue>[] items;
+		private boolean[] visits;
+		private int top = 0;
+		private long remaining;
+		private final Traversal order;
+		private final Function<Item<TKey, TValue>, R> mapper;
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private Walker(Item<TKey, TValue> root, Traversal order, Function<Item<TKey, TValue>, R> mapper) {
+			this.items = new Item[Math.max(8, root.getHeight() * 2 + 2)];
+			this.visits = new boolean[this.items.length];
+			this.remaining = root.getSize();
+			this.order = order;
+			this.mapper = mapper;
+			this.push(root, false);
+		}
+
+		private Walker(Item<TKey, TValue>[] items, boolean[] visits, Traversal order,
+				Function<Item<TKey, TValue>, R> mapper) {
+			this.items = items;
+			this.visits = visits;
+			this.top = items.length;
+			this.order = order;
+			this.mapper = mapper;
+			for (var i = 0; i < this.top; i++)
+				this.remaining += visits[i] ? 1 : items[i].getSize();
+		}
+
+		private void push(Item<TKey, TValue> item, boolean visit) {
+			if (item.isEnd())
+				return;
+			if (this.top == this.items.length) {
+				this.items = Arrays.copyOf(this.items, this.top * 2);
+				this.visits = Arrays.copyOf(this.visits, this.top * 2);
+			}
+			this.items[this.top] = item;
+			this.visits[this.top++] = visit;
+		}
+
+		private void expand(Item<TKey, TValue> item) {
+			switch (this.order) {
+				case PRE_ORDER:
+					this.push(item.getNextRight(), false);
+					this.push(item.getNextLeft(), false);
+					this.push(item, true);
+					break;
+				case IN_ORDER:
+					this.push(item.getNextRight(), false);
+					this.push(item, true);
+					this.push(item.getNextLeft(), false);
+					break;
+				case POST_ORDER:
+					this.push(item, true);
+					this.push(item.getNextRight(), false);
+					this.push(item.getNextLeft(), false);
+					break;
+			}
+		}
+
+		private Item<TKey, TValue> advance() {
+			while (this.top > 0) {
+				var item = this.items[--this.top];
+				this.items[this.top] = null;
+				if (this.visits[this.top]) {
+					this.remaining -= 1;
+					return item;
+				}
+				this.expand(item);
+			}
+			return null;
 		}
 
 		@Override
-		public ArrayList<TKey> toInOrder() {
-			var list = this.getNextLeft().toInOrder();
-			list.add(this.getKey());
-			list.addAll(this.getNextRight().toInOrder());
-			return list;
+		public boolean hasNext() {
+			return this.remaining > 0;
 		}
 
 		@Override
-		public ArrayList<TKey> toPostOrder() {
-			var list = this.getNextLeft().toPostOrder();
-			list.addAll(this.getNextRight().toPostOrder());
-			list.add(this.getKey());
-			return list;
+		public R next() {
+			var item = this.advance();
+			if (item == null)
+				throw new NoSuchElementException("Tried to iterate past the last item");
+			return this.mapper.apply(item);
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super R> action) {
+			var item = this.advance();
+			if (item == null)
+				return false;
+			action.accept(this.mapper.apply(item));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super R> action) {
+			for (var item = this.advance(); item != null; item = this.advance())
+				action.accept(this.mapper.apply(item));
+		}
+
+		@Override
+		public Spliterator<R> trySplit() {
+			if (this.top == 1 && !this.visits[0]) {
+				var item = this.items[--this.top];
+				this.items[this.top] = null;
+				this.expand(item);
+			}
+			if (this.top < 2)
+				return null;
+			var split = this.top / 2;
+			var prefix = new Walker<R>(Arrays.copyOfRange(this.items, split, this.top),
+					Arrays.copyOfRange(this.visits, split, this.top), this.order, this.mapper);
+			Arrays.fill(this.items, split, this.top, null);
+			this.top = split;
+			this.remaining -= prefix.remaining;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return this.remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SIZED | Spliterator.SUBSIZED;
 		}
 	}
 
@@ -229,40 +1000,48 @@ public class DictionaryTree<TKey, TValue> {
 		}
 
 		@Override
-		public Item<SKey, SValue> add(Item<SKey, SValue> node) {
-			node.setNextLeft(this);
-			node.setNextRight(this);
-			return node;
+		public int getHeight() {
+			return 0;
 		}
 
 		@Override
-		public Boolean find(SKey query) {
-			return false;
+		public void setHeight(int height) {
+			throw new IndexOutOfBoundsException("Tried to set out-of-bounds height");
 		}
 
 		@Override
-		public SValue get(SKey key) {
-			return null;
+		public int getSize() {
+			return 0;
 		}
 
 		@Override
-		public int length() {
-			return 0;
+		public void setSize(int size) {
+			throw new IndexOutOfBoundsException("Tried to set out-of-bounds size");
 		}
 
 		@Override
-		public ArrayList<SKey> toPreOrder() {
-			return new ArrayList<SKey>();
+		public byte[] getNormalized() {
+			throw new IndexOutOfBoundsException("Tried to get out-of-bounds normalized key");
 		}
 
 		@Override
-		public ArrayList<SKey> toInOrder() {
-			return new ArrayList<SKey>();
+		public void setNormalized(byte[] normalized) {
+			throw new IndexOutOfBoundsException("Tried to set out-of-bounds normalized key");
 		}
 
 		@Override
-		public ArrayList<SKey> toPostOrder() {
-			return new ArrayList<SKey>();
+		public long getPrefix() {
+			throw new IndexOutOfBoundsException("Tried to get out-of-bounds prefix");
+		}
+
+		@Override
+		public void setPrefix(long prefix) {
+			throw new IndexOutOfBoundsException("Tried to set out-of-bounds prefix");
+		}
+
+		@Override
+		public boolean isEnd() {
+			return true;
 		}
 	}
 }
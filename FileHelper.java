@@ -1,50 +1,121 @@
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.util.Scanner;
-import java.io.FileWriter;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public final class FileHelper {
+	private final static int CHUNK = 1 << 16;
+
 	public static boolean exists(String filename) {
 		File file = new File(filename);
 		return file.exists() && !file.isDirectory();
 	}
 
-	public static String read(String filename) throws Exception {
+	public static String head(String filename, int length) throws IOException {
 		if (!exists(filename))
 			return null;
-		String data = "";
-		var scanner = new Scanner(new File(filename), StandardCharsets.UTF_8);
-		while (scanner.hasNextLine()) {
-			data += scanner.nextLine() + "\n";
+		var buffer = new char[length];
+		var read = 0;
+		try (var reader = reader(filename)) {
+			for (var count = 0; read < length && count != -1; read += Math.max(0, count))
+				count = reader.read(buffer, read, length - read);
 		}
-		scanner.close();
-		return data;
+		return new String(buffer, 0, read);
 	}
 
-	public static void create(String filename) throws Exception {
-		new File(filename).createNewFile();
+	public static BufferedReader reader(String filename) throws IOException {
+		return Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8);
 	}
 
-	public static void write(String filename, String content) throws Exception {
-		create(filename);
-		var writer = new FileWriter(filename, StandardCharsets.UTF_8);
-		writer.write(content);
-		writer.close();
+	public static BufferedWriter writer(String filename) throws IOException {
+		return Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8);
+	}
+
+	public static Stream<String> lines(String filename) throws IOException {
+		return Files.lines(Paths.get(filename), StandardCharsets.UTF_8);
+	}
+
+	public static Stream<String> tokens(String filename, IntPredicate separator) throws IOException {
+		var reader = reader(filename);
+		var tokens = new Iterator<String>() {
+			private final char[] buffer = new char[CHUNK];
+			private final StringBuilder token = new StringBuilder();
+			private int position = 0;
+			private int limit = 0;
+			private String next = null;
+
+			@Override
+			public boolean hasNext() {
+				try {
+					while (this.next == null) {
+						if (this.position == this.limit) {
+							this.limit = reader.read(this.buffer);
+							this.position = 0;
+							if (this.limit == -1) {
+								this.limit = 0;
+								if (this.token.length() == 0)
+									return false;
+								this.next = this.token.toString();
+								this.token.setLength(0);
+								break;
+							}
+						}
+						var start = this.position;
+						while (this.position < this.limit && !separator.test(this.buffer[this.position]))
+							this.position += 1;
+						this.token.append(this.buffer, start, this.position - start);
+						if (this.position < this.limit) {
+							this.position += 1;
+							if (this.token.length() > 0) {
+								this.next = this.token.toString();
+								this.token.setLength(0);
+							}
+						}
+					}
+					return true;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			@Override
+			public String next() {
+				if (!this.hasNext())
+					throw new NoSuchElementException("Tried to read past the last token");
+				var next = this.next;
+				this.next = null;
+				return next;
+			}
+		};
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(tokens, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(() -> {
+					try {
+						reader.close();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
 	}
 
-	public static void append(String filename, String content) throws Exception {
-		Files.writeString(Paths.get(filename), content + System.lineSeparator(), StandardOpenOption.CREATE,
-				StandardOpenOption.APPEND);
+	public static void create(String filename) throws Exception {
+		new File(filename).createNewFile();
 	}
 
-	public static PrintWriter feed(String filename) throws Exception {
-		FileWriter fw = new FileWriter(filename, StandardCharsets.UTF_8, true);
-		BufferedWriter bw = new BufferedWriter(fw);
-		return new PrintWriter(bw);
+	public static void write(String filename, String content) throws Exception {
+		try (var writer = writer(filename)) {
+			writer.write(content);
+		}
 	}
 }
@@ -0,0 +1,59 @@
+public final class FrequencySketch { // Count-min sketch of 4 bit counters, halved regularly so old accesses fade
+	private final static long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+			0xcbf29ce484222325L };
+
+	private final long[] table; // 16 counters per long
+
+	private final int sample;
+
+	private int additions = 0;
+
+	public FrequencySketch(long expected) {
+		var size = Integer.highestOneBit((int) Math.max(16, Math.min(expected, 1 << 24)) - 1) << 1;
+		this.table = new long[size];
+		this.sample = size * 10;
+	}
+
+	public final int frequency(long hash) {
+		var frequency = 15;
+		for (var row = 0; row < SEEDS.length; row++) {
+			var slot = this.slot(hash, row);
+			frequency = Math.min(frequency, (int) (this.table[this.index(slot)] >>> this.offset(slot)) & 15);
+		}
+		return frequency;
+	}
+
+	public final void increment(long hash) {
+		var added = false;
+		for (var row = 0; row < SEEDS.length; row++) {
+			var slot = this.slot(hash, row);
+			var index = this.index(slot);
+			var offset = this.offset(slot);
+			if (((this.table[index] >>> offset) & 15) == 15)
+				continue;
+			this.table[index] += 1L << offset;
+			added = true;
+		}
+		if (added && ++this.additions == this.sample)
+			this.reset();
+	}
+
+	private final void reset() {
+		for (var i = 0; i < this.table.length; i++)
+			this.table[i] = (this.table[i] >>> 1) & 0x7777777777777777L;
+		this.additions /= 2;
+	}
+
+	private final long slot(long hash, int row) {
+		var slot = (hash ^ SEEDS[row]) * 0x9e3779b97f4a7c15L;
+		return slot ^ (slot >>> 29);
+	}
+
+	private final int index(long slot) {
+		return (int) (slot >>> 32) & (this.table.length - 1);
+	}
+
+	private final int offset(long slot) {
+		return ((int) slot & 15) << 2;
+	}
+}
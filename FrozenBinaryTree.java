@@ -0,0 +1,238 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public final class FrozenBinaryTree<T> implements Iterable<T> {
+	private final Object[] contents; // Eytzinger order: slot k has its children in 2k and 2k + 1, slot 0 is unused
+
+	private final Comparator<? super T> comparator;
+
+	FrozenBinaryTree(Comparator<? super T> comparator, Object[] sorted) {
+		this.comparator = comparator;
+		this.contents = new Object[sorted.length + 1];
+		var stack = new int[64];
+		var top = 0;
+		var slot = 1;
+		for (var i = 0; i < sorted.length; i++) {
+			while (slot < this.contents.length) {
+				stack[top++] = slot;
+				slot *= 2;
+			}
+			slot = stack[--top];
+			this.contents[slot] = sorted[i];
+			slot = slot * 2 + 1;
+		}
+	}
+
+	public final Boolean find(T query) {
+		return this.lookup(query) != 0;
+	}
+
+	public final int height() {
+		return 32 - Integer.numberOfLeadingZeros(this.length());
+	}
+
+	public final int length() {
+		return this.contents.length - 1;
+	}
+
+	public final ArrayList<T> toPreOrder() {
+		return this.toList(Traversal.PRE_ORDER);
+	}
+
+	public final ArrayList<T> toInOrder() {
+		return this.toList(Traversal.IN_ORDER);
+	}
+
+	public final ArrayList<T> toPostOrder() {
+		return this.toList(Traversal.POST_ORDER);
+	}
+
+	@Override
+	public final Iterator<T> iterator() {
+		return this.iterator(Traversal.IN_ORDER);
+	}
+
+	public final Iterator<T> iterator(Traversal order) {
+		return new Walker<T>(order, this::content);
+	}
+
+	@Override
+	public final Spliterator<T> spliterator() {
+		return this.spliterator(Traversal.IN_ORDER);
+	}
+
+	public final Spliterator<T> spliterator(Traversal order) {
+		return new Walker<T>(order, this::content);
+	}
+
+	public final Stream<T> stream() {
+		return this.stream(Traversal.IN_ORDER);
+	}
+
+	public final Stream<T> stream(Traversal order) {
+		return StreamSupport.stream(this.spliterator(order), false);
+	}
+
+	@SuppressWarnings("unchecked")
+	private final int lookup(T query) {
+		var slot = 1;
+		while (slot < this.contents.length) {
+			var res = comparator.compare(query, (T) this.contents[slot]);
+			if (res == 0)
+				return slot;
+			slot = slot * 2 + (res > 0 ? 1 : 0);
+		}
+		return 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	private final T content(int slot) {
+		return (T) this.contents[slot];
+	}
+
+	private final int size(int slot) { // Nodes below slot: one contiguous run of slots per level
+		var size = 0;
+		for (long from = slot, to = slot; from < this.contents.length; from = from * 2, to = to * 2 + 1)
+			size += Math.min(to, this.contents.length - 1) - from + 1;
+		return size;
+	}
+
+	private final ArrayList<T> toList(Traversal order) {
+		var list = new ArrayList<T>(this.length());
+		var walker = new Walker<T>(order, this::content);
+		while (walker.hasNext())
+			list.add(walker.next());
+		return list;
+	}
+
+	private final class Walker<R> implements Iterator<R>, Spliterator<R> {
+		private int[] items;
+		private boolean[] visits;
+		private int top = 0;
+		private long remaining;
+		private final Traversal order;
+		private final IntFunction<R> mapper;
+
+		private Walker(Traversal order, IntFunction<R> mapper) {
+			this.items = new int[Math.max(8, FrozenBinaryTree.this.height() * 2 + 2)];
+			this.visits = new boolean[this.items.length];
+			this.remaining = FrozenBinaryTree.this.length();
+			this.order = order;
+			this.mapper = mapper;
+			this.push(1, false);
+		}
+
+		private Walker(int[] items, boolean[] visits, Traversal order, IntFunction<R> mapper) {
+			this.items = items;
+			this.visits = visits;
+			this.top = items.length;
+			this.order = order;
+			this.mapper = mapper;
+			for (var i = 0; i < this.top; i++)
+				this.remaining += visits[i] ? 1 : FrozenBinaryTree.this.size(items[i]);
+		}
+
+		private void push(int slot, boolean visit) {
+			if (slot >= FrozenBinaryTree.this.contents.length)
+				return;
+			if (this.top == this.items.length) {
+				this.items = Arrays.copyOf(this.items, this.top * 2);
+				this.visits = Arrays.copyOf(this.visits, this.top * 2);
+			}
+			this.items[this.top] = slot;
+			this.visits[this.top++] = visit;
+		}
+
+		private void expand(int slot) {
+			switch (this.order) {
+				case PRE_ORDER:
+					this.push(slot * 2 + 1, false);
+					this.push(slot * 2, false);
+					this.push(slot, true);
+					break;
+				case IN_ORDER:
+					this.push(slot * 2 + 1, false);
+					this.push(slot, true);
+					this.push(slot * 2, false);
+					break;
+				case POST_ORDER:
+					this.push(slot, true);
+					this.push(slot * 2 + 1, false);
+					this.push(slot * 2, false);
+					break;
+			}
+		}
+
+		private int advance() {
+			while (this.top > 0) {
+				var slot = this.items[--this.top];
+				if (this.visits[this.top]) {
+					this.remaining -= 1;
+					return slot;
+				}
+				this.expand(slot);
+			}
+			return 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.remaining > 0;
+		}
+
+		@Override
+		public R next() {
+			var slot = this.advance();
+			if (slot == 0)
+				throw new NoSuchElementException("Tried to iterate past the last item");
+			return this.mapper.apply(slot);
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super R> action) {
+			var slot = this.advance();
+			if (slot == 0)
+				return false;
+			action.accept(this.mapper.apply(slot));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super R> action) {
+			for (var slot = this.advance(); slot != 0; slot = this.advance())
+				action.accept(this.mapper.apply(slot));
+		}
+
+		@Override
+		public Spliterator<R> trySplit() {
+			if (this.top == 1 && !this.visits[0])
+				this.expand(this.items[--this.top]);
+			if (this.top < 2)
+				return null;
+			var split = this.top / 2;
+			var prefix = new Walker<R>(Arrays.copyOfRange(this.items, split, this.top),
+					Arrays.copyOfRange(this.visits, split, this.top), this.order, this.mapper);
+			this.top = split;
+			this.remaining -= prefix.remaining;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return this.remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SIZED | Spliterator.SUBSIZED;
+		}
+	}
+}
@@ -0,0 +1,288 @@
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public final class FrozenDictionaryTree<TKey, TValue> implements Iterable<TKey> {
+	private final Object[] keys; // Eytzinger order: slot k has its children in 2k and 2k + 1, slot 0 is unused
+
+	private final Object[] values;
+
+	private final Comparator<? super TKey> comparator;
+
+	FrozenDictionaryTree(Comparator<? super TKey> comparator, Object[] sortedKeys, Object[] sortedValues) {
+		this.comparator = comparator;
+		this.keys = new Object[sortedKeys.length + 1];
+		this.values = new Object[sortedKeys.length + 1];
+		var stack = new int[64];
+		var top = 0;
+		var slot = 1;
+		for (var i = 0; i < sortedKeys.length; i++) {
+			while (slot < this.keys.length) {
+				stack[top++] = slot;
+				slot *= 2;
+			}
+			slot = stack[--top];
+			this.keys[slot] = sortedKeys[i];
+			this.values[slot] = sortedValues[i];
+			slot = slot * 2 + 1;
+		}
+	}
+
+	public final Boolean find(TKey query) {
+		return this.lookup(query) != 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public final TValue get(TKey key) {
+		return (TValue) this.values[this.lookup(key)];
+	}
+
+	public final int height() {
+		return 32 - Integer.numberOfLeadingZeros(this.length());
+	}
+
+	public final int length() {
+		return this.keys.length - 1;
+	}
+
+	@SuppressWarnings("unchecked")
+	public final TKey floor(TKey key) {
+		var floor = 0;
+		var slot = 1;
+		while (slot < this.keys.length) {
+			var res = comparator.compare(key, (TKey) this.keys[slot]);
+			if (res == 0)
+				return (TKey) this.keys[slot];
+			if (res > 0)
+				floor = slot;
+			slot = slot * 2 + (res > 0 ? 1 : 0);
+		}
+		return (TKey) this.keys[floor];
+	}
+
+	@SuppressWarnings("unchecked")
+	public final TKey ceiling(TKey key) {
+		var ceiling = 0;
+		var slot = 1;
+		while (slot < this.keys.length) {
+			var res = comparator.compare(key, (TKey) this.keys[slot]);
+			if (res == 0)
+				return (TKey) this.keys[slot];
+			if (res < 0)
+				ceiling = slot;
+			slot = slot * 2 + (res > 0 ? 1 : 0);
+		}
+		return (TKey) this.keys[ceiling];
+	}
+
+	public final ArrayList<TKey> toPreOrder() {
+		return this.toList(Traversal.PRE_ORDER);
+	}
+
+	public final ArrayList<TKey> toInOrder() {
+		return this.toList(Traversal.IN_ORDER);
+	}
+
+	public final ArrayList<TKey> toPostOrder() {
+		return this.toList(Traversal.POST_ORDER);
+	}
+
+	@Override
+	public final Iterator<TKey> iterator() {
+		return this.iterator(Traversal.IN_ORDER);
+	}
+
+	public final Iterator<TKey> iterator(Traversal order) {
+		return new Walker<TKey>(order, this::key);
+	}
+
+	@Override
+	public final Spliterator<TKey> spliterator() {
+		return this.spliterator(Traversal.IN_ORDER);
+	}
+
+	public final Spliterator<TKey> spliterator(Traversal order) {
+		return new Walker<TKey>(order, this::key);
+	}
+
+	public final Stream<TKey> stream() {
+		return this.stream(Traversal.IN_ORDER);
+	}
+
+	public final Stream<TKey> stream(Traversal order) {
+		return StreamSupport.stream(this.spliterator(order), false);
+	}
+
+	public final Stream<Map.Entry<TKey, TValue>> entries() {
+		return StreamSupport.stream(new Walker<Map.Entry<TKey, TValue>>(Traversal.IN_ORDER, this::entry), false);
+	}
+
+	@SuppressWarnings("unchecked")
+	private final int lookup(TKey key) {
+		var slot = 1;
+		while (slot < this.keys.length) {
+			var res = comparator.compare(key, (TKey) this.keys[slot]);
+			if (res == 0)
+				return slot;
+			slot = slot * 2 + (res > 0 ? 1 : 0);
+		}
+		return 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	private final TKey key(int slot) {
+		return (TKey) this.keys[slot];
+	}
+
+	@SuppressWarnings("unchecked")
+	private final Map.Entry<TKey, TValue> entry(int slot) {
+		return new AbstractMap.SimpleImmutableEntry<TKey, TValue>((TKey) this.keys[slot], (TValue) this.values[slot]);
+	}
+
+	private final int size(int slot) { // Nodes below slot: one contiguous run of slots per level
+		var size = 0;
+		for (long from = slot, to = slot; from < this.keys.length; from = from * 2, to = to * 2 + 1)
+			size += Math.min(to, this.keys.length - 1) - from + 1;
+		return size;
+	}
+
+	private final ArrayList<TKey> toList(Traversal order) {
+		var list = new ArrayList<TKey>(this.length());
+		var walker = new Walker<TKey>(order, this::key);
+		while (walker.hasNext())
+			list.add(walker.next());
+		return list;
+	}
+
+	private final class Walker<R> implements Iterator<R>, Spliterator<R> {
+		private int[] items;
+		private boolean[] visits;
+		private int top = 0;
+		private long remaining;
+		private final Traversal order;
+		private final IntFunction<R> mapper;
+
+		private Walker(Traversal order, IntFunction<R> mapper) {
+			this.items = new int[Math.max(8, FrozenDictionaryTree.this.height() * 2 + 2)];
+			this.visits = new boolean[this.items.length];
+			this.remaining = FrozenDictionaryTree.this.length();
+			this.order = order;
+			this.mapper = mapper;
+			this.push(1, false);
+		}
+
+		private Walker(int[] items, boolean[] visits, Traversal order, IntFunction<R> mapper) {
+			this.items = items;
+			this.visits = visits;
+			this.top = items.length;
+			this.order = order;
+			this.mapper = mapper;
+			for (var i = 0; i < this.top; i++)
+				this.remaining += visits[i] ? 1 : FrozenDictionaryTree.this.size(items[i]);
+		}
+
+		private void push(int slot, boolean visit) {
+			if (slot >= FrozenDictionaryTree.this.keys.length)
+				return;
+			if (this.top == this.items.length) {
+				this.items = Arrays.copyOf(this.items, this.top * 2);
+				this.visits = Arrays.copyOf(this.visits, this.top * 2);
+			}
+			this.items[this.top] = slot;
+			this.visits[this.top++] = visit;
+		}
+
+		private void expand(int slot) {
+			switch (this.order) {
+				case PRE_ORDER:
+					this.push(slot * 2 + 1, false);
+					this.push(slot * 2, false);
+					this.push(slot, true);
+					break;
+				case IN_ORDER:
+					this.push(slot * 2 + 1, false);
+					this.push(slot, true);
+					this.push(slot * 2, false);
+					break;
+				case POST_ORDER:
+					this.push(slot, true);
+					this.push(slot * 2 + 1, false);
+					this.push(slot * 2, false);
+					break;
+			}
+		}
+
+		private int advance() {
+			while (this.top > 0) {
+				var slot = this.items[--this.top];
+				if (this.visits[this.top]) {
+					this.remaining -= 1;
+					return slot;
+				}
+				this.expand(slot);
+			}
+			return 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.remaining > 0;
+		}
+
+		@Override
+		public R next() {
+			var slot = this.advance();
+			if (slot == 0)
+				throw new NoSuchElementException("Tried to iterate past the last item");
+			return this.mapper.apply(slot);
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super R> action) {
+			var slot = this.advance();
+			if (slot == 0)
+				return false;
+			action.accept(this.mapper.apply(slot));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super R> action) {
+			for (var slot = this.advance(); slot != 0; slot = this.advance())
+				action.accept(this.mapper.apply(slot));
+		}
+
+		@Override
+		public Spliterator<R> trySplit() {
+			if (this.top == 1 && !this.visits[0])
+				this.expand(this.items[--this.top]);
+			if (this.top < 2)
+				return null;
+			var split = this.top / 2;
+			var prefix = new Walker<R>(Arrays.copyOfRange(this.items, split, this.top),
+					Arrays.copyOfRange(this.visits, split, this.top), this.order, this.mapper);
+			this.top = split;
+			this.remaining -= prefix.remaining;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return this.remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SIZED | Spliterator.SUBSIZED;
+		}
+	}
+}
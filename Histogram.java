@@ -0,0 +1,88 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class Histogram { // Log-linear buckets like HdrHistogram: exact below 128, then within 1/64 of the value
+	private final static int SUB_BUCKETS = 64;
+
+	private final static int SUB_BITS = 6;
+
+	private final static int BUCKETS = (65 - SUB_BITS) * SUB_BUCKETS;
+
+	private final static int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) * 2;
+
+	private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<AtomicLongArray>(STRIPES);
+
+	private final LongAdder count = new LongAdder();
+
+	private final LongAdder sum = new LongAdder();
+
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	public final void record(long value) {
+		value = Math.max(0, value);
+		this.stripe().incrementAndGet(index(value));
+		this.count.increment();
+		this.sum.add(value);
+		this.max.accumulate(value);
+	}
+
+	public final long count() {
+		return this.count.sum();
+	}
+
+	public final long sum() {
+		return this.sum.sum();
+	}
+
+	public final long max() {
+		return this.max.get();
+	}
+
+	public final double mean() {
+		var count = this.count();
+		return count == 0 ? 0 : this.sum.sum() / (double) count;
+	}
+
+	public final long percentile(double percentile) { // Highest value of the bucket holding the percentile
+		var rank = (long) Math.ceil(this.count() * percentile / 100.0);
+		var seen = 0L;
+		for (var i = 0; i < BUCKETS; i++) {
+			for (var j = 0; j < STRIPES; j++) {
+				var counts = this.stripes.get(j);
+				seen += counts != null ? counts.get(i) : 0;
+			}
+			if (seen >= Math.max(1, rank))
+				return Math.min(highest(i), this.max());
+		}
+		return this.max();
+	}
+
+	@Override
+	public final String toString() {
+		return "p50 " + this.percentile(50) + ", p99 " + this.percentile(99) + ", max " + this.max() + ", n "
+				+ this.count();
+	}
+
+	private final AtomicLongArray stripe() { // Like LongAdder cells: a thread hashes to its own counts
+		var id = Thread.currentThread().getId();
+		var index = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+		var counts = this.stripes.get(index);
+		if (counts == null) {
+			this.stripes.compareAndSet(index, null, new AtomicLongArray(BUCKETS));
+			counts = this.stripes.get(index);
+		}
+		return counts;
+	}
+
+	private final static int index(long value) {
+		var shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	private final static long highest(int index) {
+		var shift = Math.max(0, index / SUB_BUCKETS - 1);
+		return ((long) (index - shift * SUB_BUCKETS + 1) << shift) - 1;
+	}
+}
@@ -1,25 +1,214 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 public class HttpHelper {
+	private final static int MAX_IN_FLIGHT = 32;
+
+	private final static int MAX_RETRIES = 5;
+
+	private final static long BACKOFF = TimeUnit.MILLISECONDS.toNanos(500);
+
+	private final static HttpClient CLIENT = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2)
+			.executor(ThreadHelper.executor("http")).connectTimeout(Duration.ofSeconds(10))
+			.followRedirects(HttpClient.Redirect.NORMAL).build();
+
+	private final static Semaphore IN_FLIGHT = new Semaphore(MAX_IN_FLIGHT);
+
+	private final static ConcurrentLinkedQueue<CompletableFuture<Void>> WAITING = new ConcurrentLinkedQueue<CompletableFuture<Void>>();
+
+	private final static ConcurrentHashMap<String, RateLimiter> LIMITS = new ConcurrentHashMap<String, RateLimiter>();
+
+	public interface Parser<T> { // Reads what it needs from the response body while it streams in
+		public T parse(Reader body) throws IOException;
+	}
+
+	public static void limit(String host, double permitsPerSecond, int burst) {
+		if (permitsPerSecond <= 0 || Double.isInfinite(permitsPerSecond)) {
+			LIMITS.remove(host);
+		} else {
+			LIMITS.put(host, new RateLimiter(permitsPerSecond, burst));
+		}
+	}
+
 	public static String get(String url, String query) throws Exception {
-		HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url + "?" + query))
+		return await(getAsync(url, query));
+	}
+
+	public static String post(String url, String query) throws Exception {
+		return await(postAsync(url, query));
+	}
+
+	public static CompletableFuture<String> getAsync(String url, String query) {
+		return send(getRequest(url, query));
+	}
+
+	public static CompletableFuture<String> postAsync(String url, String query) {
+		return send(postRequest(url, query));
+	}
+
+	public static CompletableFuture<String> postJsonAsync(String url, String json) {
+		return send(postJsonRequest(url, json));
+	}
+
+	public static <T> CompletableFuture<T> getAsync(String url, String query, Parser<T> parser) {
+		return send(getRequest(url, query), parser);
+	}
+
+	public static <T> CompletableFuture<T> postAsync(String url, String query, Parser<T> parser) {
+		return send(postRequest(url, query), parser);
+	}
+
+	public static <T> CompletableFuture<T> postJsonAsync(String url, String json, Parser<T> parser) {
+		return send(postJsonRequest(url, json), parser);
+	}
+
+	private static HttpRequest getRequest(String url, String query) {
+		return HttpRequest.newBuilder().uri(URI.create(url + "?" + query))
 				.header("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8")
 				.header("accept", "application/json").header("Accept-Charset", "utf-8").GET().build();
-		HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
-		return response.body();
 	}
 
-	public static String post(String url, String query) throws Exception {
-		HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url))
+	private static HttpRequest postRequest(String url, String query) {
+		return HttpRequest.newBuilder().uri(URI.create(url))
 				.header("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8")
 				.header("accept", "application/json").header("Accept-Charset", "utf-8")
 				.POST(BodyPublishers.ofString(query)).build();
-		HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
-		return new String(response.body().getBytes(StandardCharsets.UTF_8), "UTF-8");
+	}
+
+	private static HttpRequest postJsonRequest(String url, String json) {
+		return HttpRequest.newBuilder().uri(URI.create(url))
+				.header("Content-Type", "application/json; charset=UTF-8").header("accept", "application/json")
+				.header("Accept-Charset", "utf-8").POST(BodyPublishers.ofString(json)).build();
+	}
+
+	private static <T> T await(CompletableFuture<T> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+	}
+
+	private static CompletableFuture<String> send(HttpRequest request) {
+		return send(request, HttpResponse.BodyHandlers.ofString(), body -> body);
+	}
+
+	private static <T> CompletableFuture<T> send(HttpRequest request, Parser<T> parser) {
+		return send(request, HttpResponse.BodyHandlers.ofInputStream(), body -> {
+			try (var reader = new InputStreamReader(body, StandardCharsets.UTF_8)) { // Closing skips the unread rest
+				return parser.parse(reader);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	private static <B, T> CompletableFuture<T> send(HttpRequest request, HttpResponse.BodyHandler<B> handler,
+			Function<B, T> reader) {
+		var result = acquire().thenCompose(permit -> {
+			var response = new CompletableFuture<B>();
+			attempt(request, handler, 0, 0, response);
+			return response.thenApply(reader); // Still in flight until the body has been read
+		});
+		result.whenComplete((body, error) -> release());
+		return result;
+	}
+
+	private static CompletableFuture<Void> acquire() { // Never blocks, callers may be timer or client threads
+		if (WAITING.isEmpty() && IN_FLIGHT.tryAcquire())
+			return CompletableFuture.completedFuture(null);
+		var permit = new CompletableFuture<Void>();
+		WAITING.add(permit);
+		grant(); // A permit may have been released before the waiter was queued
+		return permit;
+	}
+
+	private static void release() {
+		IN_FLIGHT.release();
+		grant();
+	}
+
+	private static void grant() {
+		while (!WAITING.isEmpty() && IN_FLIGHT.tryAcquire()) {
+			var waiter = WAITING.poll();
+			if (waiter == null) {
+				IN_FLIGHT.release(); // Taken by another grant, check again
+			} else {
+				waiter.complete(null); // Only starts the first attempt, which is asynchronous
+			}
+		}
+	}
+
+	private static <B> void attempt(HttpRequest request, HttpResponse.BodyHandler<B> handler, int attempt,
+			long backoff, CompletableFuture<B> result) {
+		var limiter = LIMITS.get(request.uri().getHost());
+		var delay = Math.max(backoff, limiter == null ? 0 : limiter.reserve());
+		CompletableFuture.supplyAsync(System::nanoTime, CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS))
+				.thenCompose(started -> CLIENT.sendAsync(request, handler)
+						.whenComplete((response, error) -> measure(response, started)))
+				.whenComplete((response, error) -> {
+					if (error != null) {
+						if (attempt < MAX_RETRIES) {
+							attempt(request, handler, attempt + 1, backoff(attempt, null), result);
+						} else {
+							result.completeExceptionally(error);
+						}
+					} else if (response.statusCode() == 429 || response.statusCode() >= 500) {
+						discard(response);
+						if (attempt < MAX_RETRIES) {
+							attempt(request, handler, attempt + 1, backoff(attempt, response), result);
+						} else {
+							result.completeExceptionally(new IOException(
+									"HTTP " + response.statusCode() + " from " + request.uri().getHost()));
+						}
+					} else {
+						result.complete(response.body());
+					}
+				});
+	}
+
+	private static void discard(HttpResponse<?> response) { // Streamed bodies hold the connection until closed
+		if (!(response.body() instanceof Closeable))
+			return;
+		try {
+			((Closeable) response.body()).close();
+		} catch (IOException e) { // Nothing left to clean up
+		}
+	}
+
+	private static void measure(HttpResponse<?> response, long started) {
+		if (response == null) {
+			Metrics.HTTP.failure();
+		} else {
+			Metrics.HTTP.response(response.statusCode(), System.nanoTime() - started);
+		}
+	}
+
+	private static long backoff(int attempt, HttpResponse<?> response) {
+		var backoff = (BACKOFF << attempt) + ThreadLocalRandom.current().nextLong(BACKOFF);
+		var retryAfter = response == null ? null : response.headers().firstValue("Retry-After").orElse(null);
+		if (retryAfter != null && retryAfter.matches("\\d+"))
+			backoff = Math.max(backoff, TimeUnit.SECONDS.toNanos(Long.parseLong(retryAfter)));
+		return backoff;
 	}
 }
@@ -0,0 +1,343 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+public final class IntBinaryTree implements Iterable<Integer> {
+	private final static int END = 0; // Node id 0 is the end sentinel with height 0, real nodes start at 1
+
+	private int[] contents = new int[16];
+
+	private int[] lefts = new int[16];
+
+	private int[] rights = new int[16];
+
+	private int[] heights = new int[16];
+
+	private int first = END;
+
+	private int[] path = new int[32];
+
+	private final Balancing balancing;
+
+	private int count = 0;
+
+	private final int createNode(int content) {
+		var node = this.count + 1;
+		if (node == this.contents.length) {
+			var capacity = node * 2;
+			this.contents = Arrays.copyOf(this.contents, capacity);
+			this.lefts = Arrays.copyOf(this.lefts, capacity);
+			this.rights = Arrays.copyOf(this.rights, capacity);
+			this.heights = Arrays.copyOf(this.heights, capacity);
+		}
+		this.contents[node] = content;
+		this.lefts[node] = END;
+		this.rights[node] = END;
+		this.heights[node] = 1;
+		return node;
+	}
+
+	public IntBinaryTree() {
+		this(Balancing.NONE);
+	}
+
+	public IntBinaryTree(Balancing balancing) {
+		this.balancing = balancing;
+	}
+
+	public IntBinaryTree(int... nodes) {
+		this(Balancing.NONE, nodes);
+	}
+
+	public IntBinaryTree(Balancing balancing, int... nodes) {
+		this(balancing);
+		this.add(nodes);
+	}
+
+	public final void add(int... contents) {
+		for (int content : contents)
+			this.add(content);
+	}
+
+	public final void add(int content) {
+		var depth = 0;
+		var left = false;
+		var item = this.first;
+		while (item != END) {
+			var value = this.contents[item];
+			if (content == value)
+				return;
+			if (depth == this.path.length)
+				this.path = Arrays.copyOf(this.path, depth * 2);
+			this.path[depth++] = item;
+			left = content < value;
+			item = left ? this.lefts[item] : this.rights[item];
+		}
+		var node = createNode(content);
+		this.count += 1;
+		if (depth == 0) {
+			this.first = node;
+			return;
+		}
+		if (left) {
+			this.lefts[this.path[depth - 1]] = node;
+		} else {
+			this.rights[this.path[depth - 1]] = node;
+		}
+		while (depth > 0) {
+			item = this.path[--depth];
+			var balanced = this.balance(item);
+			if (balanced == item)
+				continue;
+			if (depth == 0) {
+				this.first = balanced;
+			} else if (this.lefts[this.path[depth - 1]] == item) {
+				this.lefts[this.path[depth - 1]] = balanced;
+			} else {
+				this.rights[this.path[depth - 1]] = balanced;
+			}
+		}
+	}
+
+	public final boolean find(int query) {
+		var item = this.first;
+		while (item != END) {
+			var value = this.contents[item];
+			if (query == value)
+				return true;
+			item = query < value ? this.lefts[item] : this.rights[item];
+		}
+		return false;
+	}
+
+	public final int height() {
+		return this.heights[this.first];
+	}
+
+	public final int length() {
+		return this.count;
+	}
+
+	private final void update(int item) {
+		this.heights[item] = Math.max(this.heights[this.lefts[item]], this.heights[this.rights[item]]) + 1;
+	}
+
+	private final int rotateLeft(int item) {
+		var pivot = this.rights[item];
+		this.rights[item] = this.lefts[pivot];
+		this.lefts[pivot] = item;
+		this.update(item);
+		this.update(pivot);
+		return pivot;
+	}
+
+	private final int rotateRight(int item) {
+		var pivot = this.lefts[item];
+		this.lefts[item] = this.rights[pivot];
+		this.rights[pivot] = item;
+		this.update(item);
+		this.update(pivot);
+		return pivot;
+	}
+
+	private final int balance(int item) {
+		this.update(item);
+		if (this.balancing != Balancing.AVL)
+			return item;
+		var factor = this.heights[this.lefts[item]] - this.heights[this.rights[item]];
+		if (factor > 1) {
+			var left = this.lefts[item];
+			if (this.heights[this.lefts[left]] < this.heights[this.rights[left]])
+				this.lefts[item] = this.rotateLeft(left);
+			return this.rotateRight(item);
+		} else if (factor < -1) {
+			var right = this.rights[item];
+			if (this.heights[this.rights[right]] < this.heights[this.lefts[right]])
+				this.rights[item] = this.rotateRight(right);
+			return this.rotateLeft(item);
+		}
+		return item;
+	}
+
+	public final int[] toPreOrder() {
+		return this.toArray(Traversal.PRE_ORDER);
+	}
+
+	public final int[] toInOrder() {
+		return this.toArray(Traversal.IN_ORDER);
+	}
+
+	public final int[] toPostOrder() {
+		return this.toArray(Traversal.POST_ORDER);
+	}
+
+	@Override
+	public final PrimitiveIterator.OfInt iterator() {
+		return this.iterator(Traversal.IN_ORDER);
+	}
+
+	public final PrimitiveIterator.OfInt iterator(Traversal order) {
+		return new Walker(this.first, order, this.count);
+	}
+
+	@Override
+	public final Spliterator.OfInt spliterator() {
+		return this.spliterator(Traversal.IN_ORDER);
+	}
+
+	public final Spliterator.OfInt spliterator(Traversal order) {
+		return new Walker(this.first, order, this.count);
+	}
+
+	public final IntStream stream() {
+		return this.stream(Traversal.IN_ORDER);
+	}
+
+	public final IntStream stream(Traversal order) {
+		return StreamSupport.intStream(this.spliterator(order), false);
+	}
+
+	private final int[] toArray(Traversal order) {
+		var array = new int[this.count];
+		var walker = new Walker(this.first, order, this.count);
+		for (var i = 0; walker.hasNext(); i++)
+			array[i] = walker.nextInt();
+		return array;
+	}
+
+	private final class Walker implements PrimitiveIterator.OfInt, Spliterator.OfInt {
+		private int[] items;
+		private boolean[] visits;
+		private int top = 0;
+		private long estimate;
+		private final Traversal order;
+
+		private Walker(int root, Traversal order, long estimate) {
+			this.items = new int[Math.max(8, IntBinaryTree.this.heights[root] * 2 + 2)];
+			this.visits = new boolean[this.items.length];
+			this.order = order;
+			this.estimate = estimate;
+			this.push(root, false);
+		}
+
+		private Walker(int[] items, boolean[] visits, Traversal order, long estimate) {
+			this.items = items;
+			this.visits = visits;
+			this.top = items.length;
+			this.order = order;
+			this.estimate = estimate;
+		}
+
+		private void push(int item, boolean visit) {
+			if (item == END)
+				return;
+			if (this.top == this.items.length) {
+				this.items = Arrays.copyOf(this.items, this.top * 2);
+				this.visits = Arrays.copyOf(this.visits, this.top * 2);
+			}
+			this.items[this.top] = item;
+			this.visits[this.top++] = visit;
+		}
+
+		private void expand(int item) {
+			switch (this.order) {
+				case PRE_ORDER:
+					this.push(IntBinaryTree.this.rights[item], false);
+					this.push(IntBinaryTree.this.lefts[item], false);
+					this.push(item, true);
+					break;
+				case IN_ORDER:
+					this.push(IntBinaryTree.this.rights[item], false);
+					this.push(item, true);
+					this.push(IntBinaryTree.this.lefts[item], false);
+					break;
+				case POST_ORDER:
+					this.push(item, true);
+					this.push(IntBinaryTree.this.rights[item], false);
+					this.push(IntBinaryTree.this.lefts[item], false);
+					break;
+			}
+		}
+
+		private int advance() {
+			while (this.top > 0) {
+				var item = this.items[--this.top];
+				if (this.visits[this.top]) {
+					if (this.estimate > 0 && this.estimate != Long.MAX_VALUE)
+						this.estimate -= 1;
+					return item;
+				}
+				this.expand(item);
+			}
+			return END;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (this.top > 0 && !this.visits[this.top - 1])
+				this.expand(this.items[--this.top]);
+			return this.top > 0;
+		}
+
+		@Override
+		public int nextInt() {
+			var item = this.advance();
+			if (item == END)
+				throw new NoSuchElementException("Tried to iterate past the last item");
+			return IntBinaryTree.this.contents[item];
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			var item = this.advance();
+			if (item == END)
+				return false;
+			action.accept(IntBinaryTree.this.contents[item]);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			for (var item = this.advance(); item != END; item = this.advance())
+				action.accept(IntBinaryTree.this.contents[item]);
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super Integer> action) {
+			if (action instanceof IntConsumer) {
+				this.forEachRemaining((IntConsumer) action);
+			} else {
+				this.forEachRemaining((IntConsumer) action::accept);
+			}
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			if (this.top == 1 && !this.visits[0])
+				this.expand(this.items[--this.top]);
+			if (this.top < 2)
+				return null;
+			var split = this.top / 2;
+			var prefix = new Walker(Arrays.copyOfRange(this.items, split, this.top),
+					Arrays.copyOfRange(this.visits, split, this.top), this.order, this.estimate / 2);
+			this.top = split;
+			this.estimate -= prefix.estimate;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return this.top == 0 ? 0 : this.estimate;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL;
+		}
+	}
+}
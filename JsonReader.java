@@ -0,0 +1,309 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+public final class JsonReader { // Pull parser over a character stream, reads only as far as the caller asks
+	public enum Token {
+		BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END
+	}
+
+	private final static byte EMPTY_DOCUMENT = 0;
+
+	private final static byte NONEMPTY_DOCUMENT = 1;
+
+	private final static byte EMPTY_ARRAY = 2;
+
+	private final static byte NONEMPTY_ARRAY = 3;
+
+	private final static byte EMPTY_OBJECT = 4;
+
+	private final static byte NONEMPTY_OBJECT = 5;
+
+	private final static byte DANGLING_NAME = 6; // Read a member name, its value comes next
+
+	private final Reader in;
+
+	private final char[] buffer = new char[4096];
+
+	private int position = 0;
+
+	private int limit = 0;
+
+	private long offset = 0; // Characters consumed before the buffer, for error messages
+
+	private byte[] scopes = new byte[32];
+
+	private int depth = 1;
+
+	private Token peeked = null;
+
+	private final StringBuilder text = new StringBuilder(); // Name, string, number or literal of the peeked token
+
+	public JsonReader(Reader in) {
+		this.in = in;
+		this.scopes[0] = EMPTY_DOCUMENT;
+	}
+
+	public final Token peek() throws IOException {
+		if (this.peeked == null)
+			this.peeked = this.advance();
+		return this.peeked;
+	}
+
+	public final boolean hasNext() throws IOException {
+		var token = this.peek();
+		return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END;
+	}
+
+	public final void beginObject() throws IOException {
+		this.expect(Token.BEGIN_OBJECT);
+	}
+
+	public final void endObject() throws IOException {
+		this.expect(Token.END_OBJECT);
+	}
+
+	public final void beginArray() throws IOException {
+		this.expect(Token.BEGIN_ARRAY);
+	}
+
+	public final void endArray() throws IOException {
+		this.expect(Token.END_ARRAY);
+	}
+
+	public final String nextName() throws IOException {
+		this.expect(Token.NAME);
+		return this.text.toString();
+	}
+
+	public final String nextString() throws IOException { // Numbers are returned as written
+		if (this.peek() != Token.NUMBER)
+			this.expect(Token.STRING);
+		this.peeked = null;
+		return this.text.toString();
+	}
+
+	public final boolean nextBoolean() throws IOException {
+		this.expect(Token.BOOLEAN);
+		return this.text.charAt(0) == 't';
+	}
+
+	public final void nextNull() throws IOException {
+		this.expect(Token.NULL);
+	}
+
+	public final void skipValue() throws IOException { // Skips a whole value, or a name together with its value
+		if (!this.hasNext())
+			throw this.error("Expected a value but found " + this.peek());
+		var nesting = 0;
+		do {
+			var token = this.peek();
+			if (token == Token.END)
+				throw this.error("Unexpected end of JSON");
+			this.peeked = null;
+			if (token == Token.BEGIN_OBJECT || token == Token.BEGIN_ARRAY) {
+				nesting += 1;
+			} else if (token == Token.END_OBJECT || token == Token.END_ARRAY) {
+				nesting -= 1;
+			} else if (token == Token.NAME) {
+				this.skipValue();
+			}
+		} while (nesting > 0);
+	}
+
+	public final boolean find(String name) throws IOException { // Skips to the next member with this name, any depth
+		while (true) {
+			var token = this.peek();
+			if (token == Token.END)
+				return false;
+			this.peeked = null;
+			if (token == Token.NAME && name.contentEquals(this.text))
+				return true;
+		}
+	}
+
+	private final void expect(Token expected) throws IOException {
+		var token = this.peek();
+		if (token != expected)
+			throw this.error("Expected " + expected + " but found " + token);
+		this.peeked = null;
+	}
+
+	private final Token advance() throws IOException {
+		int c;
+		switch (this.scopes[this.depth - 1]) {
+			case EMPTY_DOCUMENT:
+				this.scopes[this.depth - 1] = NONEMPTY_DOCUMENT;
+				return this.value(this.skipWhitespace());
+			case NONEMPTY_DOCUMENT:
+				c = this.skipWhitespace();
+				if (c != -1)
+					throw this.error("Unexpected character after the JSON value");
+				return Token.END;
+			case EMPTY_ARRAY:
+			case NONEMPTY_ARRAY:
+				c = this.skipWhitespace();
+				if (c == ']') {
+					this.depth -= 1;
+					return Token.END_ARRAY;
+				}
+				if (this.scopes[this.depth - 1] == NONEMPTY_ARRAY) {
+					if (c != ',')
+						throw this.error("Expected ',' or ']'");
+					c = this.skipWhitespace();
+				}
+				this.scopes[this.depth - 1] = NONEMPTY_ARRAY;
+				return this.value(c);
+			case EMPTY_OBJECT:
+			case NONEMPTY_OBJECT:
+				c = this.skipWhitespace();
+				if (c == '}') {
+					this.depth -= 1;
+					return Token.END_OBJECT;
+				}
+				if (this.scopes[this.depth - 1] == NONEMPTY_OBJECT) {
+					if (c != ',')
+						throw this.error("Expected ',' or '}'");
+					c = this.skipWhitespace();
+				}
+				if (c != '"')
+					throw this.error("Expected a member name");
+				this.string();
+				if (this.skipWhitespace() != ':')
+					throw this.error("Expected ':'");
+				this.scopes[this.depth - 1] = DANGLING_NAME;
+				return Token.NAME;
+			default:
+				this.scopes[this.depth - 1] = NONEMPTY_OBJECT;
+				return this.value(this.skipWhitespace());
+		}
+	}
+
+	private final Token value(int c) throws IOException {
+		switch (c) {
+			case '{':
+				this.push(EMPTY_OBJECT);
+				return Token.BEGIN_OBJECT;
+			case '[':
+				this.push(EMPTY_ARRAY);
+				return Token.BEGIN_ARRAY;
+			case '"':
+				this.string();
+				return Token.STRING;
+			case 't':
+			case 'f':
+			case 'n':
+				this.text.setLength(0);
+				this.text.append((char) c);
+				while ((c = this.read()) >= 'a' && c <= 'z')
+					this.text.append((char) c);
+				this.unread(c);
+				var literal = this.text.toString();
+				if (literal.equals("null"))
+					return Token.NULL;
+				if (literal.equals("true") || literal.equals("false"))
+					return Token.BOOLEAN;
+				throw this.error("Unexpected literal " + literal);
+			case -1:
+				throw this.error("Unexpected end of JSON");
+			default:
+				if (c != '-' && (c < '0' || c > '9'))
+					throw this.error("Unexpected character '" + (char) c + "'");
+				this.text.setLength(0);
+				this.text.append((char) c);
+				while ((c = this.read()) == '+' || c == '-' || c == '.' || c == 'e' || c == 'E'
+						|| (c >= '0' && c <= '9'))
+					this.text.append((char) c);
+				this.unread(c);
+				return Token.NUMBER;
+		}
+	}
+
+	private final void string() throws IOException { // Reads up to the closing quote, resolving escapes
+		this.text.setLength(0);
+		while (true) {
+			var start = this.position;
+			while (this.position < this.limit) {
+				var c = this.buffer[this.position];
+				if (c == '"' || c == '\\')
+					break;
+				this.position += 1;
+			}
+			this.text.append(this.buffer, start, this.position - start);
+			var c = this.read();
+			if (c == '"')
+				return;
+			if (c == '\\') {
+				this.text.append(this.escape());
+			} else if (c == -1) {
+				throw this.error("Unterminated string");
+			} else {
+				this.unread(c);
+			}
+		}
+	}
+
+	private final char escape() throws IOException {
+		var c = this.read();
+		switch (c) {
+			case 'b':
+				return '\b';
+			case 'f':
+				return '\f';
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 't':
+				return '\t';
+			case 'u':
+				var code = 0;
+				for (var i = 0; i < 4; i++) {
+					var digit = Character.digit(this.read(), 16);
+					if (digit < 0)
+						throw this.error("Malformed unicode escape");
+					code = code * 16 + digit;
+				}
+				return (char) code; // Surrogate pairs arrive as two escapes
+			case '"':
+			case '\\':
+			case '/':
+				return (char) c;
+			default:
+				throw this.error("Malformed escape");
+		}
+	}
+
+	private final void push(byte scope) {
+		if (this.depth == this.scopes.length)
+			this.scopes = Arrays.copyOf(this.scopes, this.depth * 2);
+		this.scopes[this.depth++] = scope;
+	}
+
+	private final int skipWhitespace() throws IOException {
+		int c;
+		while ((c = this.read()) == ' ' || c == '\n' || c == '\r' || c == '\t')
+			continue;
+		return c;
+	}
+
+	private final int read() throws IOException {
+		if (this.position == this.limit) {
+			this.offset += this.limit;
+			this.position = 0;
+			this.limit = Math.max(0, this.in.read(this.buffer));
+			if (this.limit == 0)
+				return -1;
+		}
+		return this.buffer[this.position++];
+	}
+
+	private final void unread(int c) {
+		if (c != -1)
+			this.position -= 1;
+	}
+
+	private final IOException error(String message) {
+		return new IOException(message + " at offset " + (this.offset + this.position));
+	}
+}
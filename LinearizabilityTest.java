@@ -0,0 +1,206 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class LinearizabilityTest { // Checks concurrent histories of ConcurrentDictionaryTree against a TreeMap
+	private enum Kind {
+		ADD, GET, FIND, LENGTH
+	}
+
+	private final static int KEYS = 3; // Few keys, so operations of different threads keep colliding
+
+	private final static void log(String msg) {
+		System.out.println(msg);
+	}
+
+	public final static void main(String[] args) throws Exception {
+		var rounds = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		var threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		var operations = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+		var inserts = args.length > 3 ? Integer.parseInt(args[3]) : 200000;
+		if (threads * operations > 64)
+			throw new IllegalArgumentException("At most 64 operations per history, got " + threads * operations);
+		log("Checking " + rounds + " histories of " + threads + " threads with " + operations
+				+ " operations each against a sequential TreeMap");
+		for (var round = 0; round < rounds; round++) {
+			var history = record(round, threads, operations);
+			if (!linearizable(history)) {
+				log("Round " + round + " is not linearizable:");
+				for (var operation : history)
+					log("  " + operation);
+				System.exit(1);
+			}
+		}
+		log("All " + rounds + " histories are linearizable");
+		log("Checking length/get consistency of " + threads + " reader(s) during " + inserts + " ordered inserts");
+		var violations = ordered(threads, inserts);
+		log(violations == 0 ? "No violations" : violations + " violation(s)");
+		if (violations > 0)
+			System.exit(1);
+	}
+
+	private final static Operation[] record(int round, int threads, int operations) throws InterruptedException {
+		var tree = new ConcurrentDictionaryTree<Integer, Integer>(Integer::compare);
+		var clock = new AtomicLong(); // Ticks before each call and after it returns, so real-time order is kept
+		var start = new CountDownLatch(1);
+		var history = new Operation[threads * operations];
+		var workers = new ArrayList<Thread>();
+		for (var t = 0; t < threads; t++) {
+			var random = new Random(round * 31L + t);
+			var offset = t * operations;
+			for (var i = 0; i < operations; i++) {
+				var kind = Kind.values()[random.nextInt(Kind.values().length)];
+				history[offset + i] = new Operation(t, kind, random.nextInt(KEYS), kind == Kind.ADD ? offset + i : 0);
+			}
+			workers.add(new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (var i = 0; i < operations; i++) {
+					if (random.nextBoolean())
+						Thread.yield(); // Varies the interleaving, even on a single core
+					history[offset + i].run(tree, clock);
+				}
+			}));
+		}
+		workers.forEach(Thread::start);
+		start.countDown();
+		for (var worker : workers)
+			worker.join();
+		return history;
+	}
+
+	private final static boolean linearizable(Operation[] history) { // Wing & Gong search with memoized states
+		return search(history, 0L, new TreeMap<Integer, Integer>(), new HashSet<String>());
+	}
+
+	private final static boolean search(Operation[] history, long done, TreeMap<Integer, Integer> model,
+			HashSet<String> visited) {
+		if (Long.bitCount(done) == history.length)
+			return true;
+		if (!visited.add(done + " " + model)) // Explored before without success
+			return false;
+		var horizon = Long.MAX_VALUE; // An operation can go next only if it started before every pending one returned
+		for (var i = 0; i < history.length; i++) {
+			if ((done & (1L << i)) == 0)
+				horizon = Math.min(horizon, history[i].returned);
+		}
+		for (var i = 0; i < history.length; i++) {
+			var operation = history[i];
+			if ((done & (1L << i)) != 0 || operation.invoked > horizon)
+				continue;
+			if (operation.kind != Kind.ADD) {
+				if (operation.result == operation.observe(model) && search(history, done | (1L << i), model, visited))
+					return true;
+				continue;
+			}
+			var added = model.putIfAbsent(operation.key, operation.value) == null; // Like the trees, keeps the first
+			if (search(history, done | (1L << i), model, visited))
+				return true;
+			if (added)
+				model.remove(operation.key);
+		}
+		return false;
+	}
+
+	private final static long ordered(int readers, int inserts) throws InterruptedException {
+		var tree = new ConcurrentDictionaryTree<Integer, Integer>(Integer::compare);
+		var violations = new LongAdder();
+		var writer = new Thread(() -> {
+			for (var i = 0; i < inserts; i++)
+				tree.add(i, -i);
+		});
+		var workers = new ArrayList<Thread>();
+		for (var r = 0; r < readers; r++) {
+			workers.add(new Thread(() -> { // One writer adds 0, 1, 2, ... so length n means keys 0..n-1 are visible
+				var last = 0;
+				for (var checks = 0; last < inserts; checks++) {
+					var length = tree.length();
+					if (length < last || (length > 0 && !Integer.valueOf(1 - length).equals(tree.get(length - 1))))
+						violations.increment();
+					if (tree.find(length + 1) && tree.length() < length + 2)
+						violations.increment();
+					last = length;
+					if (checks % 4096 == 0 && !consistent(tree.snapshot()))
+						violations.increment();
+				}
+			}));
+		}
+		writer.start();
+		workers.forEach(Thread::start);
+		writer.join();
+		for (var worker : workers)
+			worker.join();
+		if (tree.length() != inserts || !consistent(tree.snapshot()))
+			violations.increment();
+		return violations.sum();
+	}
+
+	private final static boolean consistent(PersistentDictionaryTree<Integer, Integer> snapshot) {
+		var expected = 0; // A snapshot holds exactly the keys 0..length-1 in order
+		for (var key : snapshot) {
+			if (key != expected++)
+				return false;
+		}
+		return expected == snapshot.length();
+	}
+
+	private final static class Operation {
+		private final int thread;
+		private final Kind kind;
+		private final int key;
+		private final int value; // Written by ADD
+		private int result; // Returned by the others, -1 for a missing value
+		private long invoked;
+		private long returned;
+
+		private Operation(int thread, Kind kind, int key, int value) {
+			this.thread = thread;
+			this.kind = kind;
+			this.key = key;
+			this.value = value;
+		}
+
+		private void run(ConcurrentDictionaryTree<Integer, Integer> tree, AtomicLong clock) {
+			this.invoked = clock.incrementAndGet();
+			switch (this.kind) {
+				case ADD:
+					tree.add(this.key, this.value);
+					break;
+				case GET:
+					var value = tree.get(this.key);
+					this.result = value == null ? -1 : value;
+					break;
+				case FIND:
+					this.result = tree.find(this.key) ? 1 : 0;
+					break;
+				case LENGTH:
+					this.result = tree.length();
+			}
+			this.returned = clock.incrementAndGet();
+		}
+
+		private int observe(TreeMap<Integer, Integer> model) { // What a sequential map would have returned
+			switch (this.kind) {
+				case GET:
+					return model.getOrDefault(this.key, -1);
+				case FIND:
+					return model.containsKey(this.key) ? 1 : 0;
+				default:
+					return model.size();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "thread " + this.thread + " [" + this.invoked + ", " + this.returned + "] " + this.kind + " "
+					+ this.key + (this.kind == Kind.ADD ? " = " + this.value : " -> " + this.result);
+		}
+	}
+}
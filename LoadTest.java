@@ -0,0 +1,81 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public final class LoadTest { // Drives the fetch -> dictionary -> cache pipeline of Main against a local MockServer
+	private final static void log(String msg) {
+		System.out.println(msg);
+	}
+
+	private final static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+
+	private final static long percentile(long[] sorted, double percentile) {
+		if (sorted.length == 0)
+			return 0;
+		return sorted[Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1)];
+	}
+
+	public final static void main(String[] args) throws Exception {
+		var count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		var latency = args.length > 1 ? Long.parseLong(args[1]) : 50;
+		var errorRate = args.length > 2 ? Double.parseDouble(args[2]) : 0.01;
+		var throttleRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.01;
+		var server = new MockServer(0, latency, errorRate, throttleRate).start();
+		System.setProperty("translate.url", server.translateUrl()); // before Main is initialized
+		System.setProperty("definition.url", server.definitionUrl());
+		var directory = Files.createTempDirectory("loadtest");
+		var snapshot = directory.resolve("cache.dict").toString();
+		var journalFile = directory.resolve("cache.journal").toString();
+		DictionaryFile.write(snapshot, 0, Collections.emptyIterator());
+		var dict = new DictionaryTree<String, Translation>(String::compareToIgnoreCase, Balancing.AVL);
+		var journal = CacheJournal.open(journalFile, snapshot, true, 64, 200, 1 << 20);
+		log("Translating " + count + " words against " + server.translateUrl() + " (latency " + latency
+				+ " ms, error rate " + errorRate + ", throttle rate " + throttleRate + ")");
+		var started = new long[count];
+		var latencies = new long[count];
+		var completed = new LinkedBlockingQueue<Map.Entry<Integer, Translation>>();
+		var begin = System.nanoTime();
+		for (var i = 0; i < count; i++) {
+			var index = i;
+			started[i] = System.nanoTime();
+			Main.translateAsync("word" + i).whenComplete((translation, error) -> completed
+					.add(new AbstractMap.SimpleImmutableEntry<Integer, Translation>(index, translation)));
+		}
+		Main.translations.flush();
+		var succeeded = 0;
+		for (var pending = count; pending > 0; pending--) {
+			var result = completed.take();
+			if (result.getValue() == null)
+				continue;
+			dict.add("word" + result.getKey(), result.getValue());
+			journal.append("word" + result.getKey(), result.getValue());
+			latencies[succeeded++] = System.nanoTime() - started[result.getKey()];
+		}
+		journal.flush();
+		var elapsed = System.nanoTime() - begin;
+		var sorted = Arrays.copyOf(latencies, succeeded);
+		Arrays.sort(sorted);
+		log("Succeeded: " + succeeded + ", failed: " + (count - succeeded) + ", dictionary entries: " + dict.length());
+		log(String.format("Elapsed: %.1f ms, throughput: %.1f words/s", millis(elapsed),
+				succeeded / (elapsed / (double) TimeUnit.SECONDS.toNanos(1))));
+		log(String.format("Latency: p50 %.1f ms, p99 %.1f ms, max %.1f ms", millis(percentile(sorted, 0.5)),
+				millis(percentile(sorted, 0.99)), millis(percentile(sorted, 1))));
+		log("Server: " + server.requests() + " request(s), " + server.errors() + " error(s), " + server.throttled()
+				+ " throttled");
+		log("Client: " + Metrics.HTTP);
+		journal.close();
+		server.stop();
+		try (var files = Files.list(directory)) {
+			for (var file : (Iterable<Path>) files::iterator)
+				Files.delete(file);
+		}
+		Files.delete(directory);
+	}
+}
@@ -1,13 +1,51 @@
-import java.util.regex.Pattern;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.io.Console;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public final class Main {
+	private final static String TRANSLATE_URL = System.getProperty("translate.url",
+			"https://libretranslate.com/translate");
+
+	private final static String DEFINITION_URL = System.getProperty("definition.url",
+			"https://api.dictionaryapi.dev/api/v2/entries/en_US/");
+
+	private final static long NEGATIVE_TTL = TimeUnit.DAYS.toMillis(30);
+
+	private final static long HOT_CAPACITY = 8 << 20; // Bytes of translations kept in memory
+
+	private final static int SERVER_PORT = 8090;
+
+	private final static int TRANSLATION_CHUNK = 1 << 16; // Characters of Text.txt per parallel task
+
+	private final static Translator.Rules TRANSLATOR_RULES = Translator.Rules
+			.valueOf(System.getProperty("translator.rules", "BASELINE")); // FOLDED ignores case, carries capitals over
+
+	private final static long METRICS_INTERVAL = Long.getLong("metrics.interval", 60); // Seconds, 0 = only on exit
+
+	private final static boolean METRICS_TREES = Boolean.getBoolean("metrics.trees"); // Comparisons per lookup
+
 	private static Console console = System.console();
 
+	final static Batcher<String, String> translations = new Batcher<String, String>(Main::translateBatch,
+			Main::translateSingle, 50, 500);
+
 	private final static void log(String msg) {
 		System.out.println(msg);
 	}
@@ -64,56 +102,222 @@ public final class Main {
 		return Integer.parseInt(input);
 	}
 
-	private final static String found(Boolean success) {
+	private final static String found(boolean success) {
 		return success ? "Found it!" : "Didn't find it :(";
 	}
 
-	private final static String parseTranslation(String response) {
-		var regexp = Pattern.compile("\\\"translatedText\\\":\\\"(?<translation>.*?)\\\"").matcher(response);
-		if (!regexp.find())
+	private final static String parseTranslation(Reader response) throws IOException {
+		var json = new JsonReader(response);
+		if (!json.find("translatedText") || json.peek() != JsonReader.Token.STRING)
 			return null;
-		return regexp.group("translation");
+		return json.nextString();
 	}
 
-	private final static String parseDefinition(String response) {
-		var regexp = Pattern.compile("\\\"definition\\\":\\\"(?<definition>.*?)\\\"").matcher(response);
-		if (!regexp.find())
+	private final static List<String> parseTranslations(Reader response) throws IOException {
+		var json = new JsonReader(response);
+		if (!json.find("translatedText") || json.peek() != JsonReader.Token.BEGIN_ARRAY)
 			return null;
-		return regexp.group("definition");
+		var translations = new ArrayList<String>();
+		json.beginArray();
+		while (json.hasNext()) {
+			if (json.peek() == JsonReader.Token.STRING) {
+				translations.add(json.nextString());
+			} else {
+				json.skipValue();
+				translations.add(null); // Keeps the positions, the batcher asks for this word on its own
+			}
+		}
+		return translations;
 	}
 
-	private final static ArrayList<String> clean(String[] array) {
-		var cleaned = new ArrayList<String>(Arrays.asList(array));
-		cleaned.removeAll(Arrays.asList("", null));
-		return cleaned;
+	private final static String parseDefinition(Reader response) throws IOException {
+		var definitions = parseDefinitions(response, 1, 1);
+		return definitions.isEmpty() ? null : definitions.get(0);
 	}
 
-	private final static String replaceWord(String text, String orig, String translated) {
-		return text.replaceAll(
-				"(?<=[.,\\/#!$%\\^&\\*;:{}=\\-_~()?\" ])" + orig + "(?=[.,\\/#!$%\\^&\\*;:{}=\\-_~()?\" ])",
-				"|||" + translated + "|||"); // (?i) case-insensitive
+	final static ArrayList<String> parseDefinitions(Reader response, int perPartOfSpeech, int limit)
+			throws IOException { // Stops reading once limit definitions were found
+		var definitions = new ArrayList<String>();
+		var counts = new HashMap<String, Integer>();
+		var json = new JsonReader(response);
+		while (definitions.size() < limit && json.find("meanings")) {
+			if (json.peek() != JsonReader.Token.BEGIN_ARRAY)
+				continue;
+			json.beginArray();
+			while (json.hasNext() && definitions.size() < limit) {
+				if (json.peek() != JsonReader.Token.BEGIN_OBJECT) {
+					json.skipValue();
+					continue;
+				}
+				String partOfSpeech = null; // May come before or after its definitions
+				var meaning = new ArrayList<String>();
+				json.beginObject();
+				while (json.hasNext()) {
+					var name = json.nextName();
+					if (name.equals("partOfSpeech") && json.peek() == JsonReader.Token.STRING) {
+						partOfSpeech = json.nextString();
+					} else if (name.equals("definitions") && json.peek() == JsonReader.Token.BEGIN_ARRAY) {
+						var remaining = limit - definitions.size();
+						var wanted = partOfSpeech == null ? Math.min(perPartOfSpeech, remaining)
+								: Math.min(perPartOfSpeech - counts.getOrDefault(partOfSpeech, 0), remaining);
+						if (parseMeaning(json, meaning, wanted, partOfSpeech != null && wanted == remaining)) {
+							definitions.addAll(meaning);
+							return definitions;
+						}
+					} else {
+						json.skipValue();
+					}
+				}
+				json.endObject();
+				partOfSpeech = partOfSpeech != null ? partOfSpeech : "";
+				var count = counts.getOrDefault(partOfSpeech, 0);
+				for (var i = 0; i < meaning.size() && count < perPartOfSpeech && definitions.size() < limit; i++) {
+					definitions.add(meaning.get(i));
+					count += 1;
+				}
+				counts.put(partOfSpeech, count);
+			}
+		}
+		return definitions;
+	}
+
+	private final static boolean parseMeaning(JsonReader json, ArrayList<String> meaning, int wanted, boolean last)
+			throws IOException { // True if it stopped reading as soon as the last wanted definition was found
+		json.beginArray();
+		while (json.hasNext()) {
+			if (json.peek() != JsonReader.Token.BEGIN_OBJECT) {
+				json.skipValue();
+				continue;
+			}
+			json.beginObject();
+			while (json.hasNext()) {
+				if (json.nextName().equals("definition") && json.peek() == JsonReader.Token.STRING
+						&& meaning.size() < wanted) {
+					meaning.add(json.nextString());
+					if (last && meaning.size() == wanted)
+						return true;
+				} else {
+					json.skipValue();
+				}
+			}
+			json.endObject();
+		}
+		json.endArray();
+		return false;
 	}
 
 	private final static String truncate(String text, int maxLength) {
 		return text.substring(0, Math.min(text.length(), maxLength)) + (text.length() > 100 ? "..." : "");
 	}
 
+	private final static void suggest(TieredDictionary words, String query) {
+		var matches = words.prefix(query, 5);
+		var suggestions = new ArrayList<String>();
+		for (var entry : matches) {
+			if (suggestions.size() < 5 && !entry.getKey().equalsIgnoreCase(query))
+				suggestions.add(entry.getKey() + " (" + entry.getValue().word + ")");
+		}
+		if (suggestions.isEmpty()) {
+			for (var neighbour : Arrays.asList(words.floor(query), words.ceiling(query))) {
+				if (neighbour != null && !neighbour.equalsIgnoreCase(query))
+					suggestions.add(neighbour + " (" + words.get(neighbour).word + ")");
+			}
+		}
+		if (!suggestions.isEmpty())
+			log("Similar entries: " + String.join(", ", suggestions));
+	}
+
+	final static String quote(String text) {
+		var quoted = new StringBuilder("\"");
+		for (var c : text.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			} else if (c < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) c));
+			} else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	private final static CompletableFuture<String> translateSingle(String query) {
+		var body = "q=" + URLEncoder.encode(query, StandardCharsets.UTF_8) + "&source=en&target=de";
+		return HttpHelper.postAsync(TRANSLATE_URL, body, Main::parseTranslation);
+	}
+
+	private final static CompletableFuture<List<String>> translateBatch(List<String> queries) {
+		var body = "{\"q\":[" + queries.stream().map(Main::quote).collect(Collectors.joining(","))
+				+ "],\"source\":\"en\",\"target\":\"de\",\"format\":\"text\"}";
+		return HttpHelper.postJsonAsync(TRANSLATE_URL, body, Main::parseTranslations);
+	}
+
+	final static CompletableFuture<Translation> translateAsync(String query) { // Completes with null if unknown
+		var word = URLEncoder.encode(query, StandardCharsets.UTF_8).replace("+", "%20"); // A path segment, not a form
+		var queryDefinition = HttpHelper.getAsync(DEFINITION_URL + word, "", Main::parseDefinition);
+		var queryTranslation = translations.submit(query);
+		return queryTranslation.thenCombine(queryDefinition, (translation, definition) -> {
+			if ((translation == null || translation.equalsIgnoreCase(query)) && definition == null)
+				return null;
+			return new Translation(translation != null ? translation : query, definition != null ? definition : query);
+		});
+	}
+
 	private final static Translation translate(String query) throws Exception {
-		var queryTranslation = parseTranslation(
-				HttpHelper.post("https://libretranslate.com/translate", "q=" + query + "&source=en&target=de"));
-		if (queryTranslation == null)
-			queryTranslation = query;
-		var queryDefinition = parseDefinition(
-				HttpHelper.get("https://api.dictionaryapi.dev/api/v2/entries/en_US/" + query, ""));
-		if (queryDefinition == null)
-			queryDefinition = query;
-		return new Translation(queryTranslation, queryDefinition);
+		try {
+			var translation = translateAsync(query);
+			translations.flush();
+			return translation.get();
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		}
+	}
+
+	private final static TieredDictionary openDictionary() throws Exception {
+		if (!FileHelper.exists(DictionaryFile.current("cache.dict"))) {
+			log("Indexing cached translations from cache.txt into cache.dict");
+			var skipped = DictionaryFile.importText("cache.txt", "cache.dict", true);
+			if (skipped > 0)
+				log("Skipped " + skipped + " unreadable line(s) in cache.txt");
+		}
+		log("Initializing dictionary from cache.dict and cache.journal");
+		var words = TieredDictionary.open("cache.dict", "cache.journal", HOT_CAPACITY,
+				TieredDictionary.Capacity.BYTES);
+		Metrics.register("Cache", words.metrics(), Metrics.CacheMBean.class);
+		if (METRICS_TREES)
+			Metrics.register("HotTier", words.instrument(), Metrics.TreeMBean.class);
+		return words;
+	}
+
+	private final static void serve(int port) throws Exception { // Keeps running on the server's threads
+		log("Dictionary Server", true);
+		var words = openDictionary();
+		var reader = words.reader(); // Nothing is added while serving, so requests don't queue for the dictionary lock
+		var server = new DictionaryServer(port, reader).start();
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.stop();
+			try {
+				words.close();
+			} catch (IOException e) {
+				log("Couldn't close the dictionary: " + e.getMessage());
+			}
+			Metrics.stop("metrics.txt");
+		}));
+		log("Serving " + words.length() + " entries on " + server.url() + ": GET /lookup?word=..., POST /lookup with"
+				+ " a JSON array of words, POST /translate with text. Stop with Ctrl+C");
 	}
 
 	public final static void main(String[] args) throws Exception {
+		Metrics.start("metrics.txt", METRICS_INTERVAL);
+		if (args.length > 0 && args[0].equals("--server")) {
+			serve(args.length > 1 ? Integer.parseInt(args[1]) : SERVER_PORT);
+			return;
+		}
 		log("Binary Tree", true);
 		log("Initializing binary tree with values (in order): 15, 5, 16, 3, 12, 20, 10, 13, 18, 23, 6, 7");
 		var tree = new BinaryTree<Integer>(Integer::compareTo, 15, 5, 16, 3, 12, 20, 10, 13, 18, 23, 6, 7);
+		if (METRICS_TREES)
+			Metrics.register("BinaryTree", tree.instrument(), Metrics.TreeMBean.class);
 		log("Traversal (Preorder): " + tree.toPreOrder());
 		log("Traversal (Inorder): " + tree.toInOrder());
 		log("Traversal (Postorder): " + tree.toPostOrder());
@@ -125,27 +329,24 @@ public final class Main {
 		tree.add(24);
 		log("Find 24 (again): " + found(tree.find(24)));
 		log("Dictionary Tree | B.S. 72/2", true);
-		log("Initializing dictionary");
-		var dict = new DictionaryTree<String, Translation>(String::compareToIgnoreCase);
 		log("Reading foreign text from Text.txt");
-		var sourceText = FileHelper.read("Text.txt");
-		var sourceWords = new HashSet<String>(
-				clean(sourceText.replaceAll("[.,\\/#!$%\\^&\\*;:{}=\\-_~()?\"]", "").split("\\s+"))); // [A-Za-z]*[^A-Za-z\\s]+[A-Za-z]*
-		var translatedText = " " + sourceText + " ";
-		log("Fetching cached translations from cache.txt");
-		var translatedCache = FileHelper.read("cache.txt");
-		if (translatedCache != null && !translatedCache.isBlank()) {
-			for (String translation : clean(translatedCache.split("\\R+"))) {
-				var translatedParts = translation.split(Pattern.quote("|||"));
-				if (translatedParts.length != 3)
-					throw new Exception("Unexpected cache value; delete cache.txt");
-				dict.add(translatedParts[0], new Translation(translatedParts[1], translatedParts[2]));
-				sourceWords.remove(translatedParts[0]);
-				translatedText = replaceWord(translatedText, translatedParts[0], translatedParts[1]);
-			}
+		HashSet<String> sourceWords;
+		try (var tokens = FileHelper.tokens("Text.txt", Translator::isBoundary)) {
+			sourceWords = tokens.collect(Collectors.toCollection(HashSet::new));
 		}
-		if (promptBoolean("Dictionary now contains " + dict.length() + " entries (" + sourceWords.size()
-				+ " missing to completely translate text). Do you want to retrieve more translations from the internet")) {
+		var words = openDictionary();
+		var negatives = NegativeCache.load("cache.negative", NEGATIVE_TTL);
+		var text = TRANSLATOR_RULES == Translator.Rules.FOLDED
+				? new DictionaryTree<String, Translation>(String::compareToIgnoreCase, CaseFold::fold, Balancing.AVL)
+				: new DictionaryTree<String, Translation>(String::compareTo, Balancing.AVL); // Words in Text.txt
+		sourceWords.removeIf(word -> {
+			var translation = words.get(word);
+			if (translation != null && (TRANSLATOR_RULES == Translator.Rules.FOLDED || word.equals(words.floor(word))))
+				text.add(word, translation); // The baseline only replaced words spelled like the cached entry
+			return translation != null || negatives.contains(word);
+		});
+		if (promptBoolean("Dictionary now contains " + words.length() + " entries ("
+				+ sourceWords.size() + " missing to completely translate text). Do you want to retrieve more translations from the internet")) {
 			var requestCount = promptInt("How many translations do you want to request? 0 for all words or");
 			if (requestCount == 0)
 				requestCount = sourceWords.size();
@@ -153,34 +354,55 @@ public final class Main {
 					"How many seconds do you want to wait between individual requests? Setting a too low delay can result in an IP block. 1 (recommendation) or");
 			log("Translating/Defining over the internet - This will take around "
 					+ (int) Math.ceil(requestCount * requestDelay / 60.0) + " minute(s)");
-			Object thread = new Object();
-			var i = 0;
-			var out = FileHelper.feed("cache.txt");
-			synchronized (thread) {
-				for (String sourceWord : sourceWords) {
-					if (i >= requestCount)
-						break;
-					var translation = translate(sourceWord);
-					dict.add(sourceWord, translation);
-					out.println(sourceWord + "|||" + translation.word + "|||" + translation.definition);
-					translatedText = replaceWord(translatedText, sourceWord, translation.word);
-					out.flush();
-					i += 1;
-					thread.wait(requestDelay * 1000);
+			for (var url : Arrays.asList(TRANSLATE_URL, DEFINITION_URL))
+				HttpHelper.limit(URI.create(url).getHost(), requestDelay > 0 ? 1.0 / requestDelay : 0, 1);
+			var completed = new LinkedBlockingQueue<Map.Entry<String, CompletableFuture<Translation>>>();
+			var pending = 0;
+			for (String sourceWord : sourceWords) {
+				if (pending >= requestCount)
+					break;
+				var translation = translateAsync(sourceWord);
+				translation.whenComplete((result, error) -> completed
+						.add(new AbstractMap.SimpleImmutableEntry<String, CompletableFuture<Translation>>(sourceWord,
+								translation)));
+				pending += 1;
+			}
+			translations.flush();
+			var failed = 0;
+			var unknown = 0;
+			for (; pending > 0; pending--) {
+				var result = completed.take();
+				if (result.getValue().isCompletedExceptionally()) {
+					failed += 1;
+					continue;
+				}
+				var translation = result.getValue().join();
+				if (translation == null) {
+					negatives.add(result.getKey());
+					unknown += 1;
+					continue;
 				}
+				words.put(result.getKey(), translation);
+				text.add(result.getKey(), translation);
 			}
-			out.close();
+			negatives.flush();
+			if (unknown > 0)
+				log(unknown + " word(s) are unknown to the online services and won't be requested again for a while");
+			if (failed > 0)
+				log(failed + " request(s) failed and will be retried on the next run");
+		}
+		try (var in = FileHelper.reader("Text.txt"); var out = FileHelper.writer("Translated.txt")) {
+			var frozen = text.freeze(); // Read-only from here on, looked up from every worker
+			new Translator(frozen::get, TRANSLATOR_RULES).translate(in, out, ForkJoinPool.commonPool(),
+					TRANSLATION_CHUNK);
 		}
 		log("Translated text:");
-		translatedText = translatedText.replace("|||", "");
-		translatedText = translatedText.substring(1, translatedText.length() - 1);
-		log(truncate(translatedText, 100));
-		FileHelper.write("Translated.txt", translatedText);
+		log(truncate(FileHelper.head("Translated.txt", 101), 100));
 		log("Dumped translated text to Translated.txt");
 		log("Dictionary lookup", true);
 		while (promptBoolean("Do you want to search the dictionary for an english word")) {
 			var query = promptString("Enter search query");
-			var translation = dict.get(query);
+			var translation = words.get(query);
 			if (translation == null)
 				translation = new Translation(query, query);
 			log("Query: \"" + query + "\"");
@@ -188,14 +410,23 @@ public final class Main {
 				log("Found translation: \"" + translation.word + "\"!");
 			} else {
 				log("No translation found");
-				if (promptBoolean("Do you want to retrieve the data from the internet")) {
-					translation = translate(query);
-					dict.add(query, translation);
-					FileHelper.append("cache.txt", query + "|||" + translation.word + "|||" + translation.definition);
-					if (!translation.word.equalsIgnoreCase(query)) {
-						log("Found translation: \"" + translation.word + "\"!");
-					} else {
+				suggest(words, query);
+				if (negatives.contains(query)) {
+					log("The online services didn't know this word recently, not asking again");
+				} else if (promptBoolean("Do you want to retrieve the data from the internet")) {
+					var fetched = translate(query);
+					if (fetched == null) {
+						negatives.add(query);
+						negatives.flush();
 						log("No translation found");
+					} else {
+						translation = fetched;
+						words.put(query, translation);
+						if (!translation.word.equalsIgnoreCase(query)) {
+							log("Found translation: \"" + translation.word + "\"!");
+						} else {
+							log("No translation found");
+						}
 					}
 				}
 			}
@@ -205,6 +436,12 @@ public final class Main {
 				log("No definition found");
 			}
 		}
+		words.close();
+		negatives.close();
+		log("Dictionary lookups: " + words.hits(TieredDictionary.Tier.HOT) + " in memory, "
+				+ words.hits(TieredDictionary.Tier.COLD) + " from disk, " + words.misses(TieredDictionary.Tier.COLD)
+				+ " missing (" + words.hotLength() + " entries kept in memory)");
+		Metrics.stop("metrics.txt");
 		log("Ok, goodbye!");
 		log("Done :)", true);
 	}
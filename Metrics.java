@@ -0,0 +1,328 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+public final class Metrics { // Lock-free counters, readable over JMX (domain CS_BinaryTree) and as a text dump
+	public interface TreeMBean {
+		public long getLookups();
+
+		public long getComparisons();
+
+		public double getComparisonsPerLookup();
+
+		public long getDepthP50();
+
+		public long getDepthP99();
+
+		public long getMaxDepth();
+
+		public long getHeight();
+	}
+
+	public interface CacheMBean {
+		public long getLoadMillis();
+
+		public long getHotHits();
+
+		public long getHotMisses();
+
+		public long getColdHits();
+
+		public long getColdMisses();
+
+		public double getHitRate();
+	}
+
+	public interface HttpMBean {
+		public long getRequests();
+
+		public long getErrors();
+
+		public long getThrottled();
+
+		public long getLatencyP50Millis();
+
+		public long getLatencyP99Millis();
+
+		public long getLatencyMaxMillis();
+	}
+
+	public interface PipelineMBean {
+		public long getWords();
+
+		public double getWordsPerSecond();
+	}
+
+	public final static Http HTTP = new Http();
+
+	public final static Pipeline TRANSLATOR = new Pipeline();
+
+	private final static LinkedHashMap<String, Object> REGISTERED = new LinkedHashMap<String, Object>();
+
+	private static ScheduledExecutorService timer = null;
+
+	public static synchronized <T> void register(String name, T metrics, Class<T> view) {
+		REGISTERED.put(name, metrics);
+		try {
+			var server = ManagementFactory.getPlatformMBeanServer();
+			var objectName = new ObjectName("CS_BinaryTree:type=" + name);
+			if (server.isRegistered(objectName))
+				server.unregisterMBean(objectName);
+			server.registerMBean(new StandardMBean(metrics, view), objectName);
+		} catch (JMException e) { // Still part of the text dump
+		}
+	}
+
+	public static synchronized void start(String filename, long interval) { // Dumps every interval seconds, 0 = never
+		register("Http", HTTP, HttpMBean.class);
+		register("Translator", TRANSLATOR, PipelineMBean.class);
+		if (interval <= 0 || timer != null)
+			return;
+		timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			var thread = new Thread(runnable, "metrics");
+			thread.setDaemon(true);
+			return thread;
+		});
+		timer.scheduleAtFixedRate(() -> write(filename), interval, interval, TimeUnit.SECONDS);
+	}
+
+	public static synchronized void stop(String filename) {
+		if (timer != null)
+			timer.shutdown();
+		timer = null;
+		write(filename);
+	}
+
+	public static synchronized String dump() {
+		var text = new StringBuilder();
+		for (var entry : REGISTERED.entrySet())
+			text.append(entry.getKey()).append(": ").append(entry.getValue()).append(System.lineSeparator());
+		return text.toString();
+	}
+
+	private static void write(String filename) {
+		try {
+			FileHelper.write(filename, dump());
+		} catch (Exception e) { // Metrics must never take the program down
+		}
+	}
+
+	public final static class Tree implements TreeMBean { // One per instrumented tree, see DictionaryTree.instrument()
+		private final Histogram depths = new Histogram(); // Comparisons per lookup, which is the depth reached
+
+		private final IntSupplier height; // Read when the metrics are, not on every lookup
+
+		public Tree(IntSupplier height) {
+			this.height = height;
+		}
+
+		public final void lookup(int comparisons) {
+			this.depths.record(comparisons);
+		}
+
+		@Override
+		public long getLookups() {
+			return this.depths.count();
+		}
+
+		@Override
+		public long getComparisons() {
+			return this.depths.sum();
+		}
+
+		@Override
+		public double getComparisonsPerLookup() {
+			return this.depths.mean();
+		}
+
+		@Override
+		public long getDepthP50() {
+			return this.depths.percentile(50);
+		}
+
+		@Override
+		public long getDepthP99() {
+			return this.depths.percentile(99);
+		}
+
+		@Override
+		public long getMaxDepth() {
+			return this.depths.max();
+		}
+
+		@Override
+		public long getHeight() {
+			return this.height.getAsInt();
+		}
+
+		@Override
+		public String toString() {
+			return "lookups " + this.getLookups() + ", comparisons/lookup " + String.format("%.2f", this.depths.mean())
+					+ ", depth " + this.depths + ", height " + this.getHeight();
+		}
+	}
+
+	public final static class Cache implements CacheMBean {
+		private final LongAdder[] hits = { new LongAdder(), new LongAdder() };
+
+		private final LongAdder[] misses = { new LongAdder(), new LongAdder() };
+
+		private volatile long loadNanos = 0;
+
+		public final void hit(TieredDictionary.Tier tier) {
+			this.hits[tier.ordinal()].increment();
+		}
+
+		public final void miss(TieredDictionary.Tier tier) {
+			this.misses[tier.ordinal()].increment();
+		}
+
+		public final void loaded(long nanos) {
+			this.loadNanos = nanos;
+		}
+
+		public final long hits(TieredDictionary.Tier tier) {
+			return this.hits[tier.ordinal()].sum();
+		}
+
+		public final long misses(TieredDictionary.Tier tier) {
+			return this.misses[tier.ordinal()].sum();
+		}
+
+		@Override
+		public long getLoadMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(this.loadNanos);
+		}
+
+		@Override
+		public long getHotHits() {
+			return this.hits(TieredDictionary.Tier.HOT);
+		}
+
+		@Override
+		public long getHotMisses() {
+			return this.misses(TieredDictionary.Tier.HOT);
+		}
+
+		@Override
+		public long getColdHits() {
+			return this.hits(TieredDictionary.Tier.COLD);
+		}
+
+		@Override
+		public long getColdMisses() {
+			return this.misses(TieredDictionary.Tier.COLD);
+		}
+
+		@Override
+		public double getHitRate() { // Lookups answered by either tier
+			var hits = this.getHotHits() + this.getColdHits();
+			return hits == 0 ? 0 : hits / (double) (hits + this.getColdMisses());
+		}
+
+		@Override
+		public String toString() {
+			return "loaded in " + this.getLoadMillis() + " ms, hot " + this.getHotHits() + "/" + this.getHotMisses()
+					+ " hits/misses, cold " + this.getColdHits() + "/" + this.getColdMisses() + ", hit rate "
+					+ String.format("%.3f", this.getHitRate());
+		}
+	}
+
+	public final static class Http implements HttpMBean {
+		private final LongAdder requests = new LongAdder();
+
+		private final LongAdder errors = new LongAdder();
+
+		private final LongAdder throttled = new LongAdder();
+
+		private final Histogram latencies = new Histogram(); // Microseconds per attempt, retries count separately
+
+		public final void response(int status, long nanos) {
+			this.requests.increment();
+			this.latencies.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+			if (status == 429) {
+				this.throttled.increment();
+			} else if (status >= 500) {
+				this.errors.increment();
+			}
+		}
+
+		public final void failure() {
+			this.requests.increment();
+			this.errors.increment();
+		}
+
+		@Override
+		public long getRequests() {
+			return this.requests.sum();
+		}
+
+		@Override
+		public long getErrors() {
+			return this.errors.sum();
+		}
+
+		@Override
+		public long getThrottled() {
+			return this.throttled.sum();
+		}
+
+		@Override
+		public long getLatencyP50Millis() {
+			return this.latencies.percentile(50) / 1000;
+		}
+
+		@Override
+		public long getLatencyP99Millis() {
+			return this.latencies.percentile(99) / 1000;
+		}
+
+		@Override
+		public long getLatencyMaxMillis() {
+			return this.latencies.max() / 1000;
+		}
+
+		@Override
+		public String toString() {
+			return "requests " + this.getRequests() + ", errors " + this.getErrors() + ", throttled "
+					+ this.getThrottled() + ", latency (us) " + this.latencies;
+		}
+	}
+
+	public final static class Pipeline implements PipelineMBean {
+		private final LongAdder words = new LongAdder();
+
+		private final LongAdder nanos = new LongAdder();
+
+		public final void word() {
+			this.words.increment();
+		}
+
+		public final void elapsed(long nanos) {
+			this.nanos.add(nanos);
+		}
+
+		@Override
+		public long getWords() {
+			return this.words.sum();
+		}
+
+		@Override
+		public double getWordsPerSecond() { // Over the time actually spent translating
+			var nanos = this.nanos.sum();
+			return nanos == 0 ? 0 : this.getWords() / (nanos / 1e9);
+		}
+
+		@Override
+		public String toString() {
+			return "words " + this.getWords() + ", words/s " + String.format("%.0f", this.getWordsPerSecond());
+		}
+	}
+}
@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public final class MockServer { // Local stand-in for libretranslate.com and dictionaryapi.dev
+	private final HttpServer server;
+
+	private final ExecutorService executor = ThreadHelper.executor("mock");
+
+	private final long latency;
+
+	private final double errorRate;
+
+	private final double throttleRate;
+
+	private final LongAdder requests = new LongAdder();
+
+	private final LongAdder errors = new LongAdder();
+
+	private final LongAdder throttled = new LongAdder();
+
+	public MockServer(int port, long latency, double errorRate, double throttleRate) throws IOException {
+		this.latency = latency;
+		this.errorRate = errorRate;
+		this.throttleRate = throttleRate;
+		this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+		this.server.createContext("/translate", exchange -> this.handle(exchange, this::translate));
+		this.server.createContext("/api/v2/entries/en_US/", exchange -> this.handle(exchange, this::define));
+		this.server.setExecutor(this.executor);
+	}
+
+	public final MockServer start() {
+		this.server.start();
+		return this;
+	}
+
+	public final void stop() {
+		this.server.stop(0);
+		this.executor.shutdown();
+	}
+
+	public final int port() {
+		return this.server.getAddress().getPort();
+	}
+
+	public final String translateUrl() {
+		return "http://localhost:" + this.port() + "/translate";
+	}
+
+	public final String definitionUrl() {
+		return "http://localhost:" + this.port() + "/api/v2/entries/en_US/";
+	}
+
+	public final long requests() {
+		return this.requests.sum();
+	}
+
+	public final long errors() {
+		return this.errors.sum();
+	}
+
+	public final long throttled() {
+		return this.throttled.sum();
+	}
+
+	private interface Handler {
+		String respond(HttpExchange exchange) throws IOException;
+	}
+
+	private void handle(HttpExchange exchange, Handler handler) throws IOException {
+		try {
+			this.requests.increment();
+			if (this.latency > 0)
+				Thread.sleep(this.latency);
+			var random = ThreadLocalRandom.current().nextDouble();
+			if (random < this.throttleRate) {
+				this.throttled.increment();
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				this.send(exchange, 429, "{\"error\":\"Too many requests\"}");
+			} else if (random < this.throttleRate + this.errorRate) {
+				this.errors.increment();
+				this.send(exchange, 500, "{\"error\":\"Internal server error\"}");
+			} else {
+				var body = handler.respond(exchange);
+				if (body != null) {
+					this.send(exchange, 200, body);
+				} else {
+					this.send(exchange, 404, "{\"title\":\"No Definitions Found\"}");
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void send(HttpExchange exchange, int status, String body) throws IOException {
+		var bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		exchange.getResponseBody().write(bytes);
+	}
+
+	private String translate(HttpExchange exchange) throws IOException {
+		var type = exchange.getRequestHeaders().getFirst("Content-Type");
+		if (type == null || !type.startsWith("application/json")) {
+			var body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+			for (var pair : body.split("&")) {
+				if (pair.startsWith("q="))
+					return "{\"translatedText\":" + Main.quote(translation(URLDecoder.decode(pair.substring(2),
+							StandardCharsets.UTF_8))) + "}";
+			}
+			return "{\"translatedText\":\"\"}";
+		}
+		var json = new JsonReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+		if (!json.find("q") || json.peek() == JsonReader.Token.STRING)
+			return "{\"translatedText\":" + Main.quote(translation(json.hasNext() ? json.nextString() : "")) + "}";
+		var translations = new ArrayList<String>();
+		json.beginArray();
+		while (json.hasNext())
+			translations.add(Main.quote(translation(json.nextString())));
+		return "{\"translatedText\":[" + translations.stream().collect(Collectors.joining(",")) + "]}";
+	}
+
+	private String define(HttpExchange exchange) {
+		var path = exchange.getRequestURI().getPath();
+		var word = path.substring(path.lastIndexOf('/') + 1);
+		if (word.isEmpty())
+			return null;
+		return "[{\"word\":" + Main.quote(word) + ",\"meanings\":[{\"partOfSpeech\":\"noun\",\"definitions\":[{"
+				+ "\"definition\":" + Main.quote("Definition of " + word) + "}]}]}]";
+	}
+
+	private static String translation(String query) {
+		return query.isEmpty() ? query : "[de] " + query;
+	}
+
+	public final static void main(String[] args) throws Exception {
+		var port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		var latency = args.length > 1 ? Long.parseLong(args[1]) : 50;
+		var errorRate = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+		var throttleRate = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+		var server = new MockServer(port, latency, errorRate, throttleRate).start();
+		System.out.println("Mock server listening, run Main with -Dtranslate.url=" + server.translateUrl()
+				+ " -Ddefinition.url=" + server.definitionUrl());
+	}
+}
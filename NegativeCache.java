@@ -0,0 +1,87 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+public final class NegativeCache implements Closeable { // Words the online services don't know, skipped until their entry expires
+	private final static Pattern SEPARATOR = Pattern.compile(Pattern.quote("|||"));
+
+	private final TreeMap<String, Long> expiries = new TreeMap<String, Long>(String::compareToIgnoreCase);
+
+	private final String filename;
+
+	private final long ttl;
+
+	private BufferedWriter writer = null; // Opened on the first add and kept open, appends are flushed in batches
+
+	private NegativeCache(String filename, long ttl) {
+		this.filename = filename;
+		this.ttl = ttl;
+	}
+
+	public static NegativeCache load(String filename, long ttl) throws Exception {
+		var cache = new NegativeCache(filename, ttl);
+		if (!FileHelper.exists(filename))
+			return cache;
+		var now = System.currentTimeMillis();
+		var expired = false;
+		try (var lines = FileHelper.lines(filename)) {
+			for (var line : (Iterable<String>) lines::iterator) {
+				var parts = SEPARATOR.split(line);
+				if (parts.length != 2 || !parts[1].matches("\\d+") || Long.parseLong(parts[1]) <= now) {
+					expired = true;
+					continue;
+				}
+				cache.expiries.merge(parts[0], Long.parseLong(parts[1]), Math::max);
+			}
+		}
+		if (expired) // Drop expired and unreadable lines so the file doesn't grow forever
+			cache.save();
+		return cache;
+	}
+
+	public final synchronized boolean contains(String word) {
+		var expiry = this.expiries.get(word);
+		return expiry != null && expiry > System.currentTimeMillis();
+	}
+
+	public final synchronized int length() {
+		return this.expiries.size();
+	}
+
+	public final synchronized void add(String word) throws IOException {
+		var expiry = System.currentTimeMillis() + this.ttl;
+		this.expiries.put(word, expiry);
+		if (this.writer == null)
+			this.writer = Files.newBufferedWriter(Paths.get(this.filename), StandardCharsets.UTF_8,
+					StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		this.writer.write(word + "|||" + expiry);
+		this.writer.newLine();
+	}
+
+	public final synchronized void flush() throws IOException {
+		if (this.writer != null)
+			this.writer.flush();
+	}
+
+	@Override
+	public final synchronized void close() throws IOException {
+		if (this.writer != null)
+			this.writer.close();
+		this.writer = null;
+	}
+
+	private void save() throws IOException {
+		try (var writer = FileHelper.writer(this.filename)) {
+			for (var entry : this.expiries.entrySet()) {
+				writer.write(entry.getKey() + "|||" + entry.getValue());
+				writer.newLine();
+			}
+		}
+	}
+}
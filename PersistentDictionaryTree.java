@@ -0,0 +1,203 @@
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public final class PersistentDictionaryTree<TKey, TValue> implements Iterable<TKey> {
+	private final Comparator<? super TKey> comparator;
+
+	private final Node<TKey, TValue> first;
+
+	public PersistentDictionaryTree(Comparator<? super TKey> comparator) {
+		this(comparator, null);
+	}
+
+	private PersistentDictionaryTree(Comparator<? super TKey> comparator, Node<TKey, TValue> first) {
+		this.comparator = comparator;
+		this.first = first;
+	}
+
+	public final PersistentDictionaryTree<TKey, TValue> add(TKey key, TValue value) {
+		var first = this.insert(this.first, key, value);
+		return first == null ? this : new PersistentDictionaryTree<TKey, TValue>(this.comparator, first);
+	}
+
+	public final Boolean find(TKey query) {
+		return this.lookup(this.first, query) != null;
+	}
+
+	public final TValue get(TKey key) {
+		var node = this.lookup(this.first, key);
+		return node == null ? null : node.value;
+	}
+
+	public final int length() {
+		return size(this.first);
+	}
+
+	public final int height() {
+		return height(this.first);
+	}
+
+	public final ArrayList<TKey> toInOrder() {
+		var list = new ArrayList<TKey>(size(this.first));
+		for (var iterator = new Walker<TKey, TValue>(this.first); iterator.hasNext();)
+			list.add(iterator.next().key);
+		return list;
+	}
+
+	@Override
+	public final Iterator<TKey> iterator() {
+		return keys(this.first);
+	}
+
+	public final Stream<TKey> stream() {
+		return StreamSupport.stream(Spliterators.spliterator(keys(this.first), size(this.first),
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.IMMUTABLE), false);
+	}
+
+	public final Stream<Map.Entry<TKey, TValue>> entries() {
+		var walker = new Walker<TKey, TValue>(this.first);
+		return StreamSupport.stream(Spliterators.spliterator(new Iterator<Map.Entry<TKey, TValue>>() {
+			@Override
+			public boolean hasNext() {
+				return walker.hasNext();
+			}
+
+			@Override
+			public Map.Entry<TKey, TValue> next() {
+				var node = walker.next();
+				return new AbstractMap.SimpleImmutableEntry<TKey, TValue>(node.key, node.value);
+			}
+		}, size(this.first), Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.IMMUTABLE), false);
+	}
+
+	private static <TKey, TValue> Iterator<TKey> keys(Node<TKey, TValue> first) {
+		var walker = new Walker<TKey, TValue>(first);
+		return new Iterator<TKey>() {
+			@Override
+			public boolean hasNext() {
+				return walker.hasNext();
+			}
+
+			@Override
+			public TKey next() {
+				return walker.next().key;
+			}
+		};
+	}
+
+	private final Node<TKey, TValue> lookup(Node<TKey, TValue> node, TKey key) {
+		while (node != null) {
+			var res = comparator.compare(key, node.key);
+			if (res == 0)
+				return node;
+			node = res < 0 ? node.left : node.right;
+		}
+		return null;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private final Node<TKey, TValue> insert(Node<TKey, TValue> first, TKey key, TValue value) {
+		var path = (Node<TKey, TValue>[]) new Node[height(first) + 1];
+		var lefts = new boolean[path.length];
+		var depth = 0;
+		for (var node = first; node != null; depth++) {
+			var res = comparator.compare(key, node.key);
+			if (res == 0)
+				return null;
+			path[depth] = node;
+			lefts[depth] = res < 0;
+			node = lefts[depth] ? node.left : node.right;
+		}
+		var child = new Node<TKey, TValue>(key, value, null, null);
+		while (depth > 0) {
+			var parent = path[--depth];
+			child = lefts[depth] ? balance(parent.key, parent.value, child, parent.right)
+					: balance(parent.key, parent.value, parent.left, child);
+		}
+		return child;
+	}
+
+	private static <TKey, TValue> Node<TKey, TValue> balance(TKey key, TValue value, Node<TKey, TValue> left,
+			Node<TKey, TValue> right) {
+		if (height(left) > height(right) + 1) {
+			if (height(left.left) >= height(left.right))
+				return new Node<TKey, TValue>(left.key, left.value, left.left,
+						new Node<TKey, TValue>(key, value, left.right, right));
+			var pivot = left.right;
+			return new Node<TKey, TValue>(pivot.key, pivot.value,
+					new Node<TKey, TValue>(left.key, left.value, left.left, pivot.left),
+					new Node<TKey, TValue>(key, value, pivot.right, right));
+		}
+		if (height(right) > height(left) + 1) {
+			if (height(right.right) >= height(right.left))
+				return new Node<TKey, TValue>(right.key, right.value, new Node<TKey, TValue>(key, value, left, right.left),
+						right.right);
+			var pivot = right.left;
+			return new Node<TKey, TValue>(pivot.key, pivot.value, new Node<TKey, TValue>(key, value, left, pivot.left),
+					new Node<TKey, TValue>(right.key, right.value, pivot.right, right.right));
+		}
+		return new Node<TKey, TValue>(key, value, left, right);
+	}
+
+	private static int height(Node<?, ?> node) {
+		return node == null ? 0 : node.height;
+	}
+
+	private static int size(Node<?, ?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private final static class Node<TKey, TValue> {
+		private final TKey key;
+		private final TValue value;
+		private final Node<TKey, TValue> left;
+		private final Node<TKey, TValue> right;
+		private final int height;
+		private final int size;
+
+		private Node(TKey key, TValue value, Node<TKey, TValue> left, Node<TKey, TValue> right) {
+			this.key = key;
+			this.value = value;
+			this.left = left;
+			this.right = right;
+			this.height = Math.max(height(left), height(right)) + 1;
+			this.size = size(left) + size(right) + 1;
+		}
+	}
+
+	private final static class Walker<TKey, TValue> implements Iterator<Node<TKey, TValue>> {
+		private final ArrayDeque<Node<TKey, TValue>> stack = new ArrayDeque<Node<TKey, TValue>>();
+
+		private Walker(Node<TKey, TValue> first) {
+			this.descend(first);
+		}
+
+		private void descend(Node<TKey, TValue> node) {
+			for (; node != null; node = node.left)
+				this.stack.push(node);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !this.stack.isEmpty();
+		}
+
+		@Override
+		public Node<TKey, TValue> next() {
+			if (this.stack.isEmpty())
+				throw new NoSuchElementException("Tried to iterate past the last item");
+			var node = this.stack.pop();
+			this.descend(node.right);
+			return node;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+import java.util.concurrent.TimeUnit;
+
+public final class RateLimiter {
+	private final double rate;
+
+	private final double burst;
+
+	private double tokens;
+
+	private long updated = System.nanoTime();
+
+	public RateLimiter(double permitsPerSecond, int burst) {
+		this.rate = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+		this.burst = Math.max(1, burst);
+		this.tokens = this.burst;
+	}
+
+	public final synchronized long reserve() {
+		var now = System.nanoTime();
+		this.tokens = Math.min(this.burst, this.tokens + (now - this.updated) * this.rate);
+		this.updated = now;
+		this.tokens -= 1;
+		return this.tokens >= 0 ? 0 : (long) Math.ceil(-this.tokens / this.rate);
+	}
+
+	public final void acquire() throws InterruptedException {
+		var wait = this.reserve();
+		if (wait > 0)
+			TimeUnit.NANOSECONDS.sleep(wait);
+	}
+}
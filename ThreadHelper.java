@@ -0,0 +1,18 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class ThreadHelper {
+	public static ExecutorService executor(String name) {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) { // Virtual threads need Java 21, fall back to pooled daemon threads
+			var counter = new AtomicInteger();
+			return Executors.newCachedThreadPool(runnable -> {
+				var thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+}
@@ -0,0 +1,345 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+public final class TieredDictionary implements Closeable { // Size-capped hot tree in front of the on-disk cache
+	public enum Capacity {
+		ENTRIES, BYTES
+	}
+
+	public enum Tier {
+		HOT, COLD
+	}
+
+	private final static int OVERHEAD = 160; // Rough heap bytes of a tree node, its strings and its policy entry
+
+	private final static int PENDING = 4096; // Journal entries kept in memory before merging them into the snapshot
+
+	private final static int MAX_PENDING = PENDING << 4; // Past this, new entries stay only in the journal and hot tier
+
+	private final DictionaryTree<String, Entry> hot = new DictionaryTree<String, Entry>(
+			String::compareToIgnoreCase, CaseFold::fold, Balancing.AVL);
+
+	private final LinkedHashMap<String, Entry> window = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	private final LinkedHashMap<String, Entry> protect = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	private final long[] weights = new long[3]; // Window, probation, protected
+
+	private final FrequencySketch sketch;
+
+	private final Capacity unit;
+
+	private final long windowCapacity;
+
+	private final long mainCapacity;
+
+	private final long protectedCapacity;
+
+	private final String snapshot;
+
+	private final CacheJournal journal;
+
+	private DictionaryFile cold;
+
+	private DictionaryTree<String, Translation> pending; // Journal entries the snapshot doesn't contain yet
+
+	private BloomFilter<String> journaled; // Keys put since the snapshot, also those the full pending tree skipped
+
+	private int pendingLimit = PENDING; // Puts until the next checkpoint, backs off while checkpoints fail
+
+	private int puts = 0; // Since the last checkpoint
+
+	private final HashSet<Long> spilled = new HashSet<Long>(); // Hashes of new keys the full pending tree skipped
+
+	private int added = 0; // Pending and spilled keys that are new to the snapshot
+
+	private long writes = 0; // Tells a snapshot read whether a put ran while it was outside the monitor
+
+	private final Metrics.Cache metrics = new Metrics.Cache();
+
+	private TieredDictionary(String snapshot, CacheJournal journal, long capacity, Capacity unit) throws IOException {
+		var started = System.nanoTime();
+		this.snapshot = snapshot;
+		this.journal = journal;
+		this.unit = unit;
+		this.windowCapacity = Math.max(1, capacity / 100); // W-TinyLFU: 1% LRU window, 99% segmented main space
+		this.mainCapacity = Math.max(0, capacity - this.windowCapacity);
+		this.protectedCapacity = this.mainCapacity * 4 / 5;
+		this.sketch = new FrequencySketch(unit == Capacity.ENTRIES ? capacity : capacity / OVERHEAD);
+		if (!FileHelper.exists(DictionaryFile.current(snapshot)))
+			DictionaryFile.publish(snapshot, new DictionaryTree<String, Translation>(String::compareToIgnoreCase));
+		this.cold = DictionaryFile.open(DictionaryFile.current(snapshot), String::compareToIgnoreCase);
+		DictionaryFile.prune(snapshot);
+		this.pending = this.createPending();
+		this.pending.addAll(journal.recovered().stream(), DictionaryTree.Duplicates.KEEP_LAST);
+		this.journaled = createJournaled();
+		for (var key : this.pending) {
+			this.journaled.add(key);
+			if (!this.cold.find(key))
+				this.added += 1;
+		}
+		this.metrics.loaded(System.nanoTime() - started);
+	}
+
+	public static TieredDictionary open(String snapshot, String journal, long capacity, Capacity unit)
+			throws IOException {
+		return new TieredDictionary(snapshot,
+				CacheJournal.open(journal, snapshot, true, 64, 200, 1 << 20), capacity, unit);
+	}
+
+	public final Translation get(String key) { // Only the snapshot read runs outside the monitor, see reader()
+		DictionaryFile cold;
+		long writes;
+		synchronized (this) { // Guards the hot and pending tiers, every hot hit reorders the access order maps
+			this.sketch.increment(CaseFold.hash(key));
+			if (!this.cold.mightContain(key) && !this.journaled.mightContain(key)) { // Definitely in no tier
+				this.metrics.miss(Tier.HOT);
+				this.metrics.miss(Tier.COLD);
+				return null;
+			}
+			var entry = this.hot.get(key);
+			if (entry != null) {
+				this.metrics.hit(Tier.HOT);
+				this.touch(entry.canonical);
+				return entry.translation;
+			}
+			this.metrics.miss(Tier.HOT);
+			var translation = this.pending.get(key);
+			if (translation != null) {
+				this.metrics.hit(Tier.COLD);
+				this.admit(key, translation); // Promote on hit
+				return translation;
+			}
+			cold = this.cold;
+			writes = this.writes;
+		}
+		var translation = cold.mightContain(key) ? cold.get(key) : null; // Still mapped if a checkpoint closed it
+		if (translation == null) {
+			this.metrics.miss(Tier.COLD);
+			return null;
+		}
+		this.metrics.hit(Tier.COLD);
+		synchronized (this) {
+			if (this.writes == writes && this.hot.get(key) == null) // Else a put or another reader got there first
+				this.admit(key, translation);
+		}
+		return translation;
+	}
+
+	public final synchronized void put(String key, Translation translation) throws IOException, InterruptedException {
+		this.journal.append(key, translation);
+		this.journaled.add(key);
+		this.writes += 1;
+		var replaced = this.pending.remove(key) != null;
+		if (replaced || this.pending.length() < MAX_PENDING) {
+			if (!replaced && !this.cold.find(key))
+				this.added += 1;
+			this.pending.add(key, translation);
+		} else if (this.spilled.add(CaseFold.hash(key)) && !this.cold.find(key)) { // Found again after a checkpoint
+			this.added += 1;
+		}
+		var cached = this.hot.get(key);
+		if (cached != null)
+			this.discard(cached.canonical);
+		this.sketch.increment(CaseFold.hash(key));
+		this.admit(key, translation);
+		if (++this.puts >= this.pendingLimit)
+			this.checkpoint();
+	}
+
+	public final synchronized Function<String, Translation> reader() { // Lock-free lookups, doesn't see later puts
+		var pending = this.pending.freeze();
+		var cold = this.cold;
+		return key -> {
+			var translation = pending.get(key);
+			if (translation == null && cold.mightContain(key))
+				translation = cold.get(key);
+			if (translation != null) {
+				this.metrics.hit(Tier.COLD);
+			} else {
+				this.metrics.miss(Tier.COLD);
+			}
+			return translation;
+		};
+	}
+
+	public final synchronized int length() {
+		return this.cold.length() + this.added;
+	}
+
+	public final synchronized int hotLength() {
+		return this.hot.length();
+	}
+
+	public final synchronized long hotWeight() { // In entries or estimated bytes, depending on the capacity unit
+		return this.weights[0] + this.weights[1] + this.weights[2];
+	}
+
+	public final long hits(Tier tier) {
+		return this.metrics.hits(tier);
+	}
+
+	public final long misses(Tier tier) {
+		return this.metrics.misses(tier);
+	}
+
+	public final Metrics.Cache metrics() {
+		return this.metrics;
+	}
+
+	public final synchronized Metrics.Tree instrument() { // Lookups of the hot tier only, the pending tree is replaced
+		return this.hot.instrument();
+	}
+
+	public final synchronized String floor(String key) {
+		var floor = this.cold.floor(key);
+		var candidate = this.pending.floor(key);
+		return floor == null || (candidate != null && candidate.compareToIgnoreCase(floor) > 0) ? candidate : floor;
+	}
+
+	public final synchronized String ceiling(String key) {
+		var ceiling = this.cold.ceiling(key);
+		var candidate = this.pending.ceiling(key);
+		return ceiling == null || (candidate != null && candidate.compareToIgnoreCase(ceiling) < 0) ? candidate
+				: ceiling;
+	}
+
+	public final synchronized ArrayList<Map.Entry<String, Translation>> prefix(String prefix, int limit) {
+		var matches = new TreeMap<String, Translation>(String::compareToIgnoreCase);
+		for (var entry : this.cold.prefix(prefix, limit))
+			matches.put(entry.getKey(), entry.getValue());
+		for (var entry : DictionaryTree.prefix(this.pending, prefix, limit))
+			matches.put(entry.getKey(), entry.getValue()); // Pending entries are newer than the snapshot
+		var list = new ArrayList<Map.Entry<String, Translation>>(matches.entrySet());
+		return new ArrayList<Map.Entry<String, Translation>>(list.subList(0, Math.min(limit, list.size())));
+	}
+
+	@Override
+	public final synchronized void close() throws IOException {
+		this.journal.close();
+		this.cold.close();
+	}
+
+	private final void touch(String canonical) {
+		if (this.window.get(canonical) != null || this.protect.get(canonical) != null)
+			return; // Access order maps moved it to the most recently used end
+		var entry = this.probation.remove(canonical);
+		if (entry == null)
+			return;
+		this.weights[1] -= entry.weight;
+		this.protect.put(canonical, entry);
+		this.weights[2] += entry.weight;
+		while (this.weights[2] > this.protectedCapacity) { // Demote the least recently used protected entries
+			var demoted = this.eldest(this.protect);
+			this.weights[2] -= demoted.weight;
+			this.probation.put(demoted.canonical, demoted);
+			this.weights[1] += demoted.weight;
+		}
+	}
+
+	private final void admit(String key, Translation translation) {
+		var entry = new Entry(key, translation, this.weight(key, translation));
+		if (entry.weight > this.windowCapacity + this.mainCapacity)
+			return;
+		this.hot.add(key, entry);
+		this.window.put(entry.canonical, entry);
+		this.weights[0] += entry.weight;
+		while (this.weights[0] > this.windowCapacity) {
+			var candidate = this.eldest(this.window);
+			this.weights[0] -= candidate.weight;
+			this.challenge(candidate);
+		}
+	}
+
+	private final void challenge(Entry candidate) { // TinyLFU: leave the window only if used more than the victims
+		var frequency = this.sketch.frequency(CaseFold.hash(candidate.key));
+		while (this.weights[1] + this.weights[2] + candidate.weight > this.mainCapacity) {
+			var victims = !this.probation.isEmpty() ? this.probation : this.protect;
+			var victim = victims.isEmpty() ? null : victims.values().iterator().next();
+			if (victim == null || this.sketch.frequency(CaseFold.hash(victim.key)) >= frequency) {
+				this.hot.remove(candidate.key);
+				return;
+			}
+			victims.remove(victim.canonical);
+			this.weights[victims == this.probation ? 1 : 2] -= victim.weight;
+			this.hot.remove(victim.key);
+		}
+		this.probation.put(candidate.canonical, candidate);
+		this.weights[1] += candidate.weight;
+	}
+
+	private final void discard(String canonical) {
+		for (var i = 0; i < 3; i++) {
+			var entry = (i == 0 ? this.window : i == 1 ? this.probation : this.protect).remove(canonical);
+			if (entry != null) {
+				this.weights[i] -= entry.weight;
+				this.hot.remove(entry.key);
+			}
+		}
+	}
+
+	private final void checkpoint() throws IOException, InterruptedException {
+		this.puts = 0;
+		if (!this.journal.checkpoint()) { // The snapshot couldn't be written, but the journal still has everything
+			this.pendingLimit = Math.min(this.pendingLimit * 2, MAX_PENDING);
+			return;
+		}
+		var cold = DictionaryFile.open(DictionaryFile.current(this.snapshot), String::compareToIgnoreCase);
+		this.cold.close(); // The new generation is a different file, so the old mapping never blocks the swap
+		this.cold = cold;
+		this.pending = this.createPending();
+		this.journaled = createJournaled();
+		this.spilled.clear();
+		this.pendingLimit = PENDING;
+		this.added = 0;
+		DictionaryFile.prune(this.snapshot);
+	}
+
+	private final DictionaryTree<String, Translation> createPending() {
+		return new DictionaryTree<String, Translation>(String::compareToIgnoreCase, CaseFold::fold, Balancing.AVL);
+	}
+
+	private final static BloomFilter<String> createJournaled() {
+		return new BloomFilter<String>(MAX_PENDING, 0.01, CaseFold::hash);
+	}
+
+	private final long weight(String key, Translation translation) {
+		if (this.unit == Capacity.ENTRIES)
+			return 1;
+		return OVERHEAD + 5L * key.length() + 2L * (translation.word.length() + translation.definition.length());
+	}
+
+	private final Entry eldest(LinkedHashMap<String, Entry> segment) {
+		var iterator = segment.values().iterator();
+		var eldest = iterator.next();
+		iterator.remove();
+		return eldest;
+	}
+
+	private final static String canonical(String key) { // Equal for keys that compare equal ignoring case
+		return new String(CaseFold.fold(key), StandardCharsets.ISO_8859_1);
+	}
+
+	private final static class Entry {
+		private final String key;
+		private final String canonical; // Computed once on admission, so hot hits don't fold the key again
+		private final Translation translation;
+		private final long weight;
+
+		private Entry(String key, Translation translation, long weight) {
+			this.key = key;
+			this.canonical = canonical(key);
+			this.translation = translation;
+			this.weight = weight;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+public final class Translator {
+	public enum Rules {
+		BASELINE, // Tokens end at spaces and punctuation, translations are written as looked up
+		FOLDED // Tokens also end at line breaks and tabs, translations take over the token's capitalization
+	}
+
+	private final static String BOUNDARIES = ".,/#!$%^&*;:{}=-_~()?\"";
+
+	private final static boolean[] ASCII_BOUNDARIES = new boolean[128];
+
+	private final static boolean[] BASELINE_BOUNDARIES = new boolean[128]; // Same set as the old replaceWord pattern
+
+	static {
+		for (var i = 0; i < ASCII_BOUNDARIES.length; i++) {
+			ASCII_BOUNDARIES[i] = Character.isWhitespace(i) || BOUNDARIES.indexOf(i) >= 0;
+			BASELINE_BOUNDARIES[i] = i == ' ' || BOUNDARIES.indexOf(i) >= 0;
+		}
+	}
+
+	private final Function<String, Translation> lookup;
+
+	private final Rules rules;
+
+	public Translator(Function<String, Translation> lookup) {
+		this(lookup, Rules.BASELINE);
+	}
+
+	public Translator(Function<String, Translation> lookup, Rules rules) {
+		this.lookup = lookup;
+		this.rules = rules;
+	}
+
+	public static boolean isBoundary(int c) { // Whitespace or punctuation, splits Text.txt into words
+		return c < ASCII_BOUNDARIES.length ? ASCII_BOUNDARIES[c] : Character.isWhitespace(c);
+	}
+
+	private boolean ends(int c) {
+		if (this.rules == Rules.FOLDED)
+			return isBoundary(c);
+		return c < BASELINE_BOUNDARIES.length && BASELINE_BOUNDARIES[c];
+	}
+
+	public final String translate(String text) throws IOException {
+		var out = new StringBuilder(text.length() + text.length() / 4);
+		this.translate(new StringReader(text), out);
+		return out.toString();
+	}
+
+	public final void translate(Reader in, Appendable out) throws IOException {
+		var started = System.nanoTime();
+		try {
+			this.tokenize(in, out);
+		} finally {
+			Metrics.TRANSLATOR.elapsed(System.nanoTime() - started);
+		}
+	}
+
+	public final void translate(Reader in, Appendable out, ForkJoinPool pool, int chunkSize) throws IOException {
+		var started = System.nanoTime(); // The lookup has to be thread-safe, chunks are written in input order
+		var pending = new ArrayDeque<ForkJoinTask<String>>();
+		try {
+			var buffer = new char[chunkSize];
+			var chunk = new StringBuilder();
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				var end = read;
+				while (end > 0 && !this.ends(buffer[end - 1]))
+					end -= 1; // Never split a word, it continues in the next chunk
+				chunk.append(buffer, 0, end);
+				if (end > 0 && chunk.length() >= chunkSize / 2) {
+					pending.add(this.submit(pool, chunk.toString()));
+					chunk.setLength(0);
+				}
+				chunk.append(buffer, end, read - end);
+				while (pending.size() > pool.getParallelism() * 2) // Bounds memory, keeps every worker busy
+					out.append(pending.poll().join());
+			}
+			if (chunk.length() > 0)
+				pending.add(this.submit(pool, chunk.toString()));
+			while (!pending.isEmpty())
+				out.append(pending.poll().join());
+		} finally {
+			pending.forEach(task -> task.cancel(false));
+			Metrics.TRANSLATOR.elapsed(System.nanoTime() - started);
+		}
+	}
+
+	private ForkJoinTask<String> submit(ForkJoinPool pool, String chunk) {
+		return pool.submit(() -> {
+			var out = new StringBuilder(chunk.length() + chunk.length() / 4);
+			this.tokenize(new StringReader(chunk), out);
+			return out.toString();
+		});
+	}
+
+	private void tokenize(Reader in, Appendable out) throws IOException {
+		var buffer = new char[8192];
+		var token = new StringBuilder();
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			var start = 0;
+			for (var i = 0; i < read; i++) {
+				if (!this.ends(buffer[i]))
+					continue;
+				if (token.length() > 0 || i > start) {
+					token.append(buffer, start, i - start);
+					this.emit(token, out);
+				}
+				out.append(buffer[i]);
+				start = i + 1;
+			}
+			token.append(buffer, start, read - start);
+		}
+		if (token.length() > 0)
+			this.emit(token, out);
+	}
+
+	private void emit(StringBuilder token, Appendable out) throws IOException {
+		var word = token.toString();
+		token.setLength(0);
+		var translation = this.lookup.apply(word);
+		Metrics.TRANSLATOR.word();
+		if (translation == null) {
+			out.append(word);
+		} else {
+			out.append(this.rules == Rules.FOLDED ? matchCase(word, translation.word) : translation.word);
+		}
+	}
+
+	private final static String matchCase(String source, String translation) { // Lookups ignore case, the text doesn't
+		if (translation.isEmpty() || !Character.isUpperCase(source.charAt(0)))
+			return translation;
+		if (source.length() > 1 && source.equals(source.toUpperCase(Locale.ROOT)))
+			return translation.toUpperCase(Locale.ROOT);
+		if (Character.isUpperCase(translation.charAt(0)))
+			return translation;
+		return translation.substring(0, 1).toUpperCase(Locale.ROOT) + translation.substring(1);
+	}
+}
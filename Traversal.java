@@ -0,0 +1,3 @@
+public enum Traversal {
+	PRE_ORDER, IN_ORDER, POST_ORDER
+}